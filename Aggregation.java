@@ -0,0 +1,349 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Group by aggregation over the rows of a {@link Table}, created through {@link Table#groupBy(String...)}.
+ * <p>
+ * Aggregates are declared one after another and numbered in that order, for example
+ * {@code table.groupBy("color").count().sum("age").avg("height").run()} returns one {@link Group} per color, where
+ * aggregate 0 is the number of rows, 1 the sum of their ages and 2 their average height.
+ * <p>
+ * The rows are split into ranges that are aggregated as separate tasks on a fork join pool, each into groups of its
+ * own with primitive accumulators, and the groups of neighbouring ranges are then merged. Integral columns are summed
+ * as longs and floating point columns as doubles.
+ */
+public class Aggregation<T extends Table.Row> {
+
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+    private static final int AVG = 4;
+    private static final int DISTINCT = 5;
+
+    // Ranges with fewer rows than this are not split any further
+    private static final int MIN_SPLIT_SIZE = 1 << 13;
+
+    private final List<T> rows;
+    private final Class<T> rowclass;
+    private final Schema.Accessor[] keys;
+    private final ArrayList<Aggregate> aggregates = new ArrayList<>();
+
+    Aggregation(List<T> rows, Class<T> rowclass, String[] columns) throws Exceptions.InvalidColumn {
+        this.rows = rows;
+        this.rowclass = rowclass;
+        this.keys = new Schema.Accessor[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.keys[i] = this.accessor(columns[i]);
+        }
+    }
+
+    // One aggregate declared on the aggregation
+    private static class Aggregate {
+        private final int op;
+        private final Schema.Accessor accessor;
+        private final boolean integral;
+
+        private Aggregate(int op, Schema.Accessor accessor) {
+            this.op = op;
+            this.accessor = accessor;
+            Class<?> type = accessor == null ? null : accessor.getType();
+            this.integral = type == int.class || type == long.class || type == short.class || type == byte.class;
+        }
+
+        private long getLong(Object row) {
+            Class<?> type = this.accessor.getType();
+            if (type == int.class) {
+                return this.accessor.getInt(row);
+            } else if (type == long.class) {
+                return this.accessor.getLong(row);
+            } else if (type == short.class) {
+                return this.accessor.getShort(row);
+            }
+            return this.accessor.getByte(row);
+        }
+
+        private double getDouble(Object row) {
+            return this.accessor.getType() == float.class ? this.accessor.getFloat(row) : this.accessor.getDouble(row);
+        }
+    }
+
+    // Number of rows in each group
+    public Aggregation<T> count() {
+        this.aggregates.add(new Aggregate(COUNT, null));
+        return this;
+    }
+
+    public Aggregation<T> sum(String column) throws Exceptions.InvalidColumn {
+        return this.numeric(SUM, column);
+    }
+
+    public Aggregation<T> min(String column) throws Exceptions.InvalidColumn {
+        return this.numeric(MIN, column);
+    }
+
+    public Aggregation<T> max(String column) throws Exceptions.InvalidColumn {
+        return this.numeric(MAX, column);
+    }
+
+    public Aggregation<T> avg(String column) throws Exceptions.InvalidColumn {
+        return this.numeric(AVG, column);
+    }
+
+    // Number of distinct values of a column in each group, of any type
+    public Aggregation<T> countDistinct(String column) throws Exceptions.InvalidColumn {
+        this.aggregates.add(new Aggregate(DISTINCT, this.accessor(column)));
+        return this;
+    }
+
+    private Aggregation<T> numeric(int op, String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.accessor(column);
+        Class<?> type = accessor.getType();
+        if (type != int.class && type != long.class && type != short.class && type != byte.class
+                && type != float.class && type != double.class) {
+            throw new IllegalArgumentException(
+                    String.format("Column %s has type %s, expected a numeric type",
+                            column,
+                            type.getName()
+                    )
+            );
+        }
+        this.aggregates.add(new Aggregate(op, accessor));
+        return this;
+    }
+
+    private Schema.Accessor accessor(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = Schema.Of(this.rowclass).getColumn(column);
+        if (accessor == null) {
+            throw new Exceptions.InvalidColumn(
+                    String.format("Column %s does not exist on %s",
+                            column,
+                            this.rowclass.getName()
+                    )
+            );
+        }
+        return accessor;
+    }
+
+    public List<Group> run() {
+        return this.run(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates the rows on the given pool
+     * @return One group per distinct combination of the grouped columns, in the order each was first seen in the table
+     */
+    public List<Group> run(ForkJoinPool pool) {
+        Aggregate[] aggregates = this.aggregates.toArray(new Aggregate[0]);
+        int splitSize = Math.max(MIN_SPLIT_SIZE, this.rows.size() / (pool.getParallelism() * 4));
+        Map<Object, Group> groups = pool.invoke(new Task(aggregates, 0, this.rows.size(), splitSize));
+        return new ArrayList<>(groups.values());
+    }
+
+    private class Task extends RecursiveTask<LinkedHashMap<Object, Group>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Aggregate[] aggregates;
+        private final int start;
+        private final int end;
+        private final int splitSize;
+
+        private Task(Aggregate[] aggregates, int start, int end, int splitSize) {
+            this.aggregates = aggregates;
+            this.start = start;
+            this.end = end;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        protected LinkedHashMap<Object, Group> compute() {
+            if (this.end - this.start <= this.splitSize) {
+                return this.aggregate();
+            }
+
+            int middle = (this.start + this.end) >>> 1;
+            Task left = new Task(this.aggregates, this.start, middle, this.splitSize);
+            Task right = new Task(this.aggregates, middle, this.end, this.splitSize);
+            left.fork();
+            LinkedHashMap<Object, Group> rightGroups = right.compute();
+            LinkedHashMap<Object, Group> groups = left.join();
+            // Groups first seen on the right are appended after those of the left, keeping the order of the rows
+            for (Map.Entry<Object, Group> entry : rightGroups.entrySet()) {
+                Group group = groups.putIfAbsent(entry.getKey(), entry.getValue());
+                if (group != null) {
+                    group.merge(entry.getValue());
+                }
+            }
+            return groups;
+        }
+
+        private LinkedHashMap<Object, Group> aggregate() {
+            Schema.Accessor[] keys = Aggregation.this.keys;
+            LinkedHashMap<Object, Group> groups = new LinkedHashMap<>();
+            for (int i = this.start; i < this.end; i++) {
+                T row = Aggregation.this.rows.get(i);
+                Object key;
+                if (keys.length == 1) {
+                    key = keys[0].get(row);
+                } else {
+                    Object[] values = new Object[keys.length];
+                    for (int j = 0; j < keys.length; j++) {
+                        values[j] = keys[j].get(row);
+                    }
+                    key = Arrays.asList(values);
+                }
+
+                Group group = groups.get(key);
+                if (group == null) {
+                    group = new Group(this.aggregates, keys.length == 1 ? Collections.singletonList(key) : (List<?>) key);
+                    groups.put(key, group);
+                }
+                group.add(row);
+            }
+            return groups;
+        }
+
+    }
+
+    /**
+     * Values of the grouped columns along with the aggregates of the rows sharing them.
+     * Aggregates are read by the position they were declared in
+     */
+    public static class Group {
+
+        private final Aggregate[] aggregates;
+        private final List<?> key;
+        private long count = 0;
+        // Running value of each aggregate, in longs for integral columns and in doubles otherwise
+        private final long[] longs;
+        private final double[] doubles;
+        private final HashSet<?>[] distinct;
+
+        private Group(Aggregate[] aggregates, List<?> key) {
+            this.aggregates = aggregates;
+            this.key = Collections.unmodifiableList(key);
+            this.longs = new long[aggregates.length];
+            this.doubles = new double[aggregates.length];
+            this.distinct = new HashSet<?>[aggregates.length];
+            for (int i = 0; i < aggregates.length; i++) {
+                if (aggregates[i].op == MIN) {
+                    this.longs[i] = Long.MAX_VALUE;
+                    this.doubles[i] = Double.POSITIVE_INFINITY;
+                } else if (aggregates[i].op == MAX) {
+                    this.longs[i] = Long.MIN_VALUE;
+                    this.doubles[i] = Double.NEGATIVE_INFINITY;
+                } else if (aggregates[i].op == DISTINCT) {
+                    this.distinct[i] = new HashSet<>();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(Object row) {
+            this.count++;
+            for (int i = 0; i < this.aggregates.length; i++) {
+                Aggregate aggregate = this.aggregates[i];
+                switch (aggregate.op) {
+                    case SUM, AVG -> {
+                        if (aggregate.integral) {
+                            this.longs[i] += aggregate.getLong(row);
+                        } else {
+                            this.doubles[i] += aggregate.getDouble(row);
+                        }
+                    }
+                    case MIN -> {
+                        if (aggregate.integral) {
+                            this.longs[i] = Math.min(this.longs[i], aggregate.getLong(row));
+                        } else {
+                            this.doubles[i] = Math.min(this.doubles[i], aggregate.getDouble(row));
+                        }
+                    }
+                    case MAX -> {
+                        if (aggregate.integral) {
+                            this.longs[i] = Math.max(this.longs[i], aggregate.getLong(row));
+                        } else {
+                            this.doubles[i] = Math.max(this.doubles[i], aggregate.getDouble(row));
+                        }
+                    }
+                    case DISTINCT -> ((HashSet<Object>) this.distinct[i]).add(aggregate.accessor.get(row));
+                }
+            }
+        }
+
+        // Folds the partial results of the same group from another range of rows into this one
+        @SuppressWarnings("unchecked")
+        private void merge(Group other) {
+            this.count += other.count;
+            for (int i = 0; i < this.aggregates.length; i++) {
+                switch (this.aggregates[i].op) {
+                    case SUM, AVG -> {
+                        this.longs[i] += other.longs[i];
+                        this.doubles[i] += other.doubles[i];
+                    }
+                    case MIN -> {
+                        this.longs[i] = Math.min(this.longs[i], other.longs[i]);
+                        this.doubles[i] = Math.min(this.doubles[i], other.doubles[i]);
+                    }
+                    case MAX -> {
+                        this.longs[i] = Math.max(this.longs[i], other.longs[i]);
+                        this.doubles[i] = Math.max(this.doubles[i], other.doubles[i]);
+                    }
+                    case DISTINCT -> ((HashSet<Object>) this.distinct[i]).addAll(other.distinct[i]);
+                }
+            }
+        }
+
+        // Values of the grouped columns, in the order they were given to groupBy
+        public List<?> getKey() {
+            return this.key;
+        }
+
+        public Object getKey(int column) {
+            return this.key.get(column);
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Value of an aggregate. Counts are Longs, averages Doubles, and sums, minimums and maximums are Longs for
+         * integral columns and Doubles otherwise
+         */
+        public Number get(int aggregate) {
+            Aggregate a = this.aggregates[aggregate];
+            return switch (a.op) {
+                case COUNT -> this.count;
+                case AVG -> (a.integral ? (double) this.longs[aggregate] : this.doubles[aggregate]) / this.count;
+                case DISTINCT -> (long) this.distinct[aggregate].size();
+                default -> a.integral ? (Number) this.longs[aggregate] : (Number) this.doubles[aggregate];
+            };
+        }
+
+        public long getLong(int aggregate) {
+            return this.get(aggregate).longValue();
+        }
+
+        public double getDouble(int aggregate) {
+            return this.get(aggregate).doubleValue();
+        }
+
+        public String toString() {
+            StringBuilder builder = new StringBuilder(this.key.toString());
+            for (int i = 0; i < this.aggregates.length; i++) {
+                builder.append(i == 0 ? " " : ", ").append(this.get(i));
+            }
+            return builder.toString();
+        }
+
+    }
+
+}
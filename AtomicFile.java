@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replaces the contents of a file by writing them to a temporary file next to it, which then atomically takes its
+ * place, so the file is never seen half written, even after a crash.
+ * <p>
+ * Unlike {@link Files#createTempFile}, which always creates a file only its owner can read, the temporary file gets
+ * the permissions of the file it replaces, or those of any new file if there is none yet.
+ */
+class AtomicFile {
+
+    // Creates an empty file next to the target to write its new contents to
+    static Path CreateTemp(Path target) throws IOException {
+        target = target.toAbsolutePath();
+        while (true) {
+            Path temp = target.resolveSibling(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                // Created through the default file attributes, so it gets the permissions the process gives new files
+                Files.newByteChannel(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+            } catch (java.nio.file.FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                CopyPermissions(target, temp);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return temp;
+        }
+    }
+
+    private static void CopyPermissions(Path from, Path to) throws IOException {
+        if (!Files.exists(from)) {
+            return;
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (view != null) {
+            Files.setPosixFilePermissions(to, view.readAttributes().permissions());
+        }
+    }
+
+    /**
+     * Flushes the temporary file to disk and moves it over the target, then flushes the directory so the move itself
+     * survives a crash. The temporary file must have been closed
+     */
+    static void Commit(Path temp, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try (FileChannel directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened or flushed on every platform, such as Windows
+        }
+    }
+
+}
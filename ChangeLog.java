@@ -0,0 +1,357 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists the changes made to a {@link Table} by appending them to a log next to its CSV file, instead of rewriting
+ * the whole file on every save.
+ * <p>
+ * Rows are added and deleted through the log, which applies each change to the table and appends a record for it to
+ * {@code <file>.log}: a {@code +} or {@code -} cell followed by the cells of the row, ended by a line break.
+ * {@link #commit()} makes the changes appended so far durable. {@link Table#loadCSV(String)}, loadCSVParallel,
+ * loadCSVFiles and loadCSVCached replay the log after loading the file, so a table always loads with every committed
+ * change, and a record torn by a crash is ignored. Loading some of the columns of a file that has a log fails, since
+ * the log holds whole rows.
+ * <p>
+ * Compacting writes the table back to the CSV file and drops the log. The log is first rotated to
+ * {@code <file>.log.<n>} so that writers can keep appending while the file is written in the background. Rotated logs
+ * are only deleted once the file has been replaced, and are replayed before the current log if a crash happens in
+ * between. Replaying changes the table already contains has no effect, which is why the table must not allow
+ * duplicates. Loading a file that has a log into a table that allows duplicates fails instead of leaving out the
+ * changes in the log.
+ */
+public class ChangeLog<T extends Table.Row> implements AutoCloseable {
+
+    private final Table<T> table;
+    private final Class<T> rowclass;
+    private final Path path;
+    private final Path log;
+
+    // Guards the table and the log writer against concurrent changes and rotation
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Only one compaction runs at a time
+    private final ReentrantLock compactLock = new ReentrantLock();
+
+    private FileOutputStream stream;
+    private BufferedWriter out;
+    private long logSize;
+
+    private long maxLogSize = Long.MAX_VALUE;
+    private Executor compactor;
+    // Set from the moment a commit schedules a compaction until it is done, so that commits schedule one at a time
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Starts logging the changes of a table that has already been loaded from the given file
+     * @throws IllegalArgumentException if the table allows duplicates
+     */
+    public ChangeLog(Table<T> table, Class<T> rowclass, String filePath) throws IOException {
+        if (table.allowsDuplicates()) {
+            throw new IllegalArgumentException("A change log requires a table that does not allow duplicates");
+        }
+        this.table = table;
+        this.rowclass = rowclass;
+        this.path = Path.of(filePath).toAbsolutePath();
+        this.log = LogPath(this.path);
+        this.open();
+    }
+
+    private static Path LogPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".log");
+    }
+
+    // Opens the log for appending, first cutting off a record torn by a crash
+    private void open() throws IOException {
+        if (Files.exists(this.log)) {
+            try (FileChannel channel = FileChannel.open(this.log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.truncate(CompleteLength(channel));
+            }
+        }
+        this.stream = new FileOutputStream(this.log.toFile(), true);
+        this.out = new BufferedWriter(new OutputStreamWriter(this.stream, Charset.defaultCharset()));
+        this.logSize = Files.size(this.log);
+    }
+
+    /**
+     * Compacts the log in the background on the given executor whenever a commit leaves it larger than maxLogSize bytes
+     */
+    public ChangeLog<T> autoCompact(long maxLogSize, Executor executor) {
+        this.maxLogSize = maxLogSize;
+        this.compactor = executor;
+        return this;
+    }
+
+    public boolean add(T row) throws IOException {
+        this.writeLock.lock();
+        try {
+            if (!this.table.addRow(row)) {
+                return false;
+            }
+            this.append('+', row);
+            return true;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    // Deletes the row with the same columns as the given one
+    public boolean delete(T row) throws IOException {
+        this.writeLock.lock();
+        try {
+            if (!this.table.deleteEqual(row)) {
+                return false;
+            }
+            this.append('-', row);
+            return true;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    // Runs the filter once, then deletes and logs exactly the rows it matched
+    public int deleteAll(Table.RowFilter<T> filter) throws IOException {
+        this.writeLock.lock();
+        try {
+            ArrayList<T> rows = this.table.findAll(filter);
+            Set<T> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+            matched.addAll(rows);
+            this.table.deleteAll(matched::contains);
+            for (T row : rows) {
+                this.append('-', row);
+            }
+            return rows.size();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void append(char op, T row) throws IOException {
+        this.out.write(op);
+        this.out.write(',');
+        new RowWriter<>(this.out, this.rowclass).writeRow(row);
+        this.out.write('\n');
+    }
+
+    // Writes the changes appended so far to disk
+    public void commit() throws IOException {
+        boolean compact;
+        this.writeLock.lock();
+        try {
+            this.flush();
+            compact = this.compactor != null && this.logSize > this.maxLogSize
+                    && this.compacting.compareAndSet(false, true);
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (compact) {
+            try {
+                this.compactAsync(this.compactor).whenComplete((result, e) -> this.compacting.set(false));
+            } catch (RuntimeException e) {
+                // The executor rejected the compaction
+                this.compacting.set(false);
+                throw e;
+            }
+        }
+    }
+
+    // Writes the log to disk without scheduling a compaction. The caller holds the write lock
+    private void flush() throws IOException {
+        this.out.flush();
+        this.stream.getChannel().force(false);
+        this.logSize = this.stream.getChannel().size();
+    }
+
+    public CompletableFuture<Void> compactAsync(Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                this.compact();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, executor);
+    }
+
+    /**
+     * Writes the log to disk, then writes the table to its CSV file and deletes the log. Changes can keep being made
+     * while the file is written; they go to a new log
+     */
+    public void compact() throws IOException {
+        this.compactLock.lock();
+        try {
+            Table<T> snapshot;
+            this.writeLock.lock();
+            try {
+                this.flush();
+                snapshot = this.table.copy();
+                this.out.close();
+                Files.move(this.log, this.log.resolveSibling(this.log.getFileName() + "." + (LastRotation(this.log) + 1)));
+                this.open();
+            } finally {
+                this.writeLock.unlock();
+            }
+
+            this.save(snapshot);
+            for (Path rotated : Rotated(this.log)) {
+                Files.deleteIfExists(rotated);
+            }
+        } finally {
+            this.compactLock.unlock();
+        }
+    }
+
+    // Writes the snapshot to a temporary file which then replaces the CSV file, like Table.saveCSV, but without
+    // swallowing errors so that the logs are kept if it fails
+    private void save(Table<T> snapshot) throws IOException {
+        Path temp = AtomicFile.CreateTemp(this.path);
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 BufferedWriter out = new BufferedWriter(new OutputStreamWriter(stream, Charset.defaultCharset()))) {
+                RowWriter<T> writer = new RowWriter<>(out, this.rowclass);
+                writer.writeHeader();
+                for (T row : snapshot.getRows()) {
+                    writer.writeRow(row);
+                }
+            }
+            AtomicFile.Commit(temp, this.path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writeLock.lock();
+        try {
+            this.flush();
+            this.out.close();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the logs of a CSV file to a table that was just loaded from it, rotated logs first
+     * @return The number of changes replayed
+     * @throws IllegalArgumentException if the file has a log but the table allows duplicates, since the log could
+     * then add rows the file already holds
+     */
+    static <T extends Table.Row> int Replay(Table<T> table, String filePath) throws IOException, Exceptions.Parse {
+        ArrayList<Path> logs = Logs(filePath);
+        if (!logs.isEmpty() && table.allowsDuplicates()) {
+            throw new IllegalArgumentException(
+                    String.format("%s has a change log, which cannot be replayed into a table that allows duplicates",
+                            filePath
+                    )
+            );
+        }
+
+        int changes = 0;
+        for (Path path : logs) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long length = CompleteLength(channel);
+                if (length == 0) {
+                    continue;
+                }
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                try (Tokenizer tokenizer = new Tokenizer(bytes, Charset.defaultCharset(), 1)) {
+                    while (tokenizer.nextRecord()) {
+                        String op = tokenizer.getCell(0);
+                        T row = table.parseRecord(tokenizer, 1);
+                        if (op.equals("+")) {
+                            table.addRows(List.of(row));
+                        } else if (op.equals("-")) {
+                            table.deleteEqual(row);
+                        } else {
+                            throw new Exceptions.Parse(
+                                    String.format("Line %d of %s has unknown change '%s'",
+                                            tokenizer.getLineNumber(),
+                                            path,
+                                            op
+                                    )
+                            );
+                        }
+                        changes++;
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    // Whether the CSV file has changes in a log, rotated or not
+    static boolean HasLog(String filePath) throws IOException {
+        return !Logs(filePath).isEmpty();
+    }
+
+    // Rotated logs of a CSV file in the order they were rotated, then its current log
+    private static ArrayList<Path> Logs(String filePath) throws IOException {
+        Path log = LogPath(Path.of(filePath).toAbsolutePath());
+        ArrayList<Path> logs = Rotated(log);
+        if (Files.exists(log)) {
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    // Length of the log up to the line break ending its last complete record
+    private static long CompleteLength(FileChannel channel) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - block.capacity());
+            block.clear();
+            block.limit((int) (end - start));
+            channel.read(block, start);
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    // Rotated logs in the order they were rotated
+    private static ArrayList<Path> Rotated(Path log) throws IOException {
+        TreeMap<Long, Path> rotated = new TreeMap<>();
+        String prefix = log.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(log.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    rotated.put(Long.parseLong(file.getFileName().toString().substring(prefix.length())), file);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return new ArrayList<>(rotated.values());
+    }
+
+    private static long LastRotation(Path log) throws IOException {
+        ArrayList<Path> rotated = Rotated(log);
+        if (rotated.isEmpty()) {
+            return 0;
+        }
+        String name = rotated.get(rotated.size() - 1).getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.ServiceLoader;
+
+/**
+ * Reads, creates and writes the rows of one Row class through plain field accesses and constructor calls, generated
+ * at compile time by {@link CodecProcessor}.
+ * <p>
+ * {@link Table} and {@link RowWriter} use the codec of a Row class whenever one was generated, and the reflective
+ * path of {@link Schema} otherwise. Rows then never go through reflection, but {@link Schema#Of(Class)} still
+ * discovers the columns of the class by reflection, once per class.
+ * <p>
+ * A codec calls the constructor chosen at compile time and has no fallback: a cell it cannot parse or a constructor
+ * that throws fails the record with an {@link Exceptions.Parse}, where the reflective path would fall back to the
+ * default constructor. Each record is read once, so a constructor never runs twice for the same row.
+ * <p>
+ * The codec of a Row class {@code a.b.Outer$Row} is the class {@code a.b.Outer_Row_Codec}. It is found by name, or
+ * through the {@code META-INF/services/Codec} file written by the processor where classes cannot be loaded by name,
+ * as in a native image.
+ */
+public abstract class Codec<T extends Table.Row> {
+
+    private static final ClassValue<Codec<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected Codec<?> computeValue(Class<?> rowclass) {
+            Codec<?> codec = Find(rowclass);
+            // A codec generated before the columns of the class changed is ignored
+            if (codec != null && !Arrays.asList(codec.getColumnNames()).equals(Schema.Of(rowclass).getColumnNames())) {
+                return null;
+            }
+            return codec;
+        }
+    };
+
+    /**
+     * Returns the generated codec of a Row class
+     * @return null if none was generated, or it no longer matches the columns of the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Table.Row> Codec<T> For(Class<T> rowclass) {
+        return (Codec<T>) CACHE.get(rowclass);
+    }
+
+    static String Name(String rowclassName) {
+        return rowclassName.replace('$', '_') + "_Codec";
+    }
+
+    private static Codec<?> Find(Class<?> rowclass) {
+        ClassLoader loader = rowclass.getClassLoader();
+        try {
+            Class<?> codec = Class.forName(Name(rowclass.getName()), true, loader);
+            if (Codec.class.isAssignableFrom(codec)) {
+                return (Codec<?>) codec.getDeclaredConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not generated, or not loadable by name
+        }
+
+        try {
+            for (Codec<?> codec : ServiceLoader.load(Codec.class, loader)) {
+                if (codec.getRowClass() == rowclass) {
+                    return codec;
+                }
+            }
+        } catch (java.util.ServiceConfigurationError e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    public abstract Class<T> getRowClass();
+
+    // Lowercased names of the columns in declaration order, as in Schema.getColumnNames
+    protected abstract String[] getColumnNames();
+
+    // Builds a row from the current record of a tokenizer, whose cells for the columns start at firstCell
+    protected abstract T read(Tokenizer tokenizer, int firstCell);
+
+    // Builds a row from a value per column in declaration order, each boxed to the exact type of its column
+    protected abstract T create(Object[] values);
+
+    // Writes the cells of a row, after RowWriter started its record
+    protected abstract void write(T row, RowWriter<T> out) throws IOException;
+
+}
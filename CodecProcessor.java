@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@link Codec} for every class with {@link Table.Column} fields, so rows are parsed, created and written
+ * without reflection.
+ * <p>
+ * Run it by compiling the Row classes with {@code javac -processor CodecProcessor} and this class on the processor
+ * path. The generated codecs are listed in {@code META-INF/services/Codec} for lookups that cannot load classes by
+ * name.
+ * <p>
+ * A class gets no codec, with a warning, if the generated code could not reach it: when the class or one of its
+ * columns is private, a nested class is not static, a column has a type {@link Parsers} cannot parse, or the class
+ * declares neither a constructor taking every column nor a default constructor. Such classes keep using reflection.
+ */
+@SupportedAnnotationTypes("Table.Column")
+public class CodecProcessor extends AbstractProcessor {
+
+    // One column of a Row class
+    private static class Column {
+
+        private final String field;
+        private final TypeMirror type;
+        // Enum class given to Table.Enum, or null
+        private final TypeMirror enumClass;
+
+        private Column(String field, TypeMirror type, TypeMirror enumClass) {
+            this.field = field;
+            this.type = type;
+            this.enumClass = enumClass;
+        }
+
+    }
+
+    private final LinkedHashSet<String> generated = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        LinkedHashSet<TypeElement> rowclasses = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element field : round.getElementsAnnotatedWith(annotation)) {
+                if (field.getKind() == ElementKind.FIELD) {
+                    rowclasses.add((TypeElement) field.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement rowclass : rowclasses) {
+            try {
+                this.generate(rowclass);
+            } catch (IOException e) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not write the codec of " + rowclass + ": " + e.getMessage(), rowclass);
+            }
+        }
+
+        if (round.processingOver() && !this.generated.isEmpty()) {
+            this.writeServices();
+        }
+        return false;
+    }
+
+    private void generate(TypeElement rowclass) throws IOException {
+        String reason = this.unreachable(rowclass);
+        List<Column> columns = new ArrayList<>();
+        for (Element member : rowclass.getEnclosedElements()) {
+            if (reason != null) {
+                break;
+            }
+            if (member.getKind() != ElementKind.FIELD || member.getAnnotation(Table.Column.class) == null) {
+                continue;
+            }
+            Column column = new Column(member.getSimpleName().toString(), member.asType(), this.enumClass(member));
+            if (member.getModifiers().contains(Modifier.PRIVATE) || member.getModifiers().contains(Modifier.STATIC)) {
+                reason = "column " + column.field + " is private or static";
+            } else if (column.enumClass == null && !this.isSupported(column.type)) {
+                reason = "column " + column.field + " has unsupported type " + column.type;
+            }
+            columns.add(column);
+        }
+
+        boolean constructor = reason == null && this.hasConstructor(rowclass, columns);
+        if (reason == null && !constructor && !this.hasConstructor(rowclass, List.of())) {
+            reason = "it declares no constructor taking every column and no default constructor";
+        }
+        if (reason != null) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No codec generated for " + rowclass + ", " + reason, rowclass);
+            return;
+        }
+
+        String binaryName = this.processingEnv.getElementUtils().getBinaryName(rowclass).toString();
+        String name = Codec.Name(binaryName);
+        JavaFileObject file = this.processingEnv.getFiler().createSourceFile(name, rowclass);
+        try (Writer out = file.openWriter()) {
+            out.write(this.source(rowclass, name, columns, constructor));
+        }
+        this.generated.add(name);
+    }
+
+    // Why generated code in the same package could not use the class, or null if it can
+    private String unreachable(TypeElement rowclass) {
+        for (Element e = rowclass; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            TypeElement type = (TypeElement) e;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                return "it is private";
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                return "it is local";
+            }
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                    && type.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                return "it is an inner class";
+            }
+        }
+        if (rowclass.getKind() != ElementKind.CLASS || rowclass.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "it is not a concrete class";
+        }
+        if (!rowclass.getTypeParameters().isEmpty()) {
+            return "it is generic";
+        }
+        return null;
+    }
+
+    private TypeMirror enumClass(Element field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!type.getQualifiedName().contentEquals("Table.Enum")) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("enumClass")) {
+                    return (TypeMirror) entry.getValue().getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Same types as Parsers.For
+    private boolean isSupported(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+            case LONG:
+            case SHORT:
+            case BYTE:
+            case FLOAT:
+            case DOUBLE:
+            case BOOLEAN:
+            case CHAR:
+                return true;
+            case DECLARED:
+                return type.toString().equals("java.lang.String");
+            default:
+                return false;
+        }
+    }
+
+    // Whether the class declares a non private constructor taking exactly the types of the given columns, in order
+    private boolean hasConstructor(TypeElement rowclass, List<Column> columns) {
+        for (Element member : rowclass.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.CONSTRUCTOR || member.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            List<? extends VariableElement> parameters = ((ExecutableElement) member).getParameters();
+            boolean matches = parameters.size() == columns.size();
+            for (int i = 0; matches && i < columns.size(); i++) {
+                matches = this.processingEnv.getTypeUtils().isSameType(parameters.get(i).asType(), columns.get(i).type);
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String source(TypeElement rowclass, String name, List<Column> columns, boolean constructor) {
+        String type = rowclass.getQualifiedName().toString();
+        String simpleName = name.substring(name.lastIndexOf('.') + 1);
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(rowclass).getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("// Generated by CodecProcessor from ").append(type).append(", do not edit\n");
+        source.append("public final class ").append(simpleName).append(" extends Codec<").append(type).append("> {\n\n");
+
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.enumClass != null) {
+                source.append("    private static final ").append(column.enumClass).append("[] CONSTANTS_").append(i)
+                        .append(" = ").append(column.enumClass).append(".values();\n");
+            }
+        }
+        source.append("    private static final String[] COLUMN_NAMES = {");
+        for (int i = 0; i < columns.size(); i++) {
+            source.append(i > 0 ? ", " : "").append('"').append(columns.get(i).field.toLowerCase()).append('"');
+        }
+        source.append("};\n\n");
+
+        source.append("    public Class<").append(type).append("> getRowClass() {\n");
+        source.append("        return ").append(type).append(".class;\n");
+        source.append("    }\n\n");
+
+        source.append("    protected String[] getColumnNames() {\n");
+        source.append("        return COLUMN_NAMES.clone();\n");
+        source.append("    }\n\n");
+
+        ArrayList<String> cells = new ArrayList<>();
+        ArrayList<String> values = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            cells.add(this.parse(columns.get(i), i));
+            values.add("(" + this.boxed(columns.get(i).type) + ") values[" + i + "]");
+        }
+
+        source.append("    protected ").append(type).append(" read(Tokenizer tokenizer, int firstCell) {\n");
+        source.append("        char[] buffer = tokenizer.getBuffer();\n");
+        this.construct(source, type, columns, cells, constructor);
+        source.append("    }\n\n");
+
+        source.append("    protected ").append(type).append(" create(Object[] values) {\n");
+        this.construct(source, type, columns, values, constructor);
+        source.append("    }\n\n");
+
+        source.append("    protected void write(").append(type).append(" row, RowWriter<").append(type)
+                .append("> out) throws java.io.IOException {\n");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                source.append("        out.writeSeparator();\n");
+            }
+            source.append("        ").append(this.write(columns.get(i))).append(";\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    // Creates the row through the constructor taking every column, or the default constructor and field assignments
+    private void construct(StringBuilder source, String type, List<Column> columns, List<String> values, boolean constructor) {
+        if (constructor) {
+            source.append("        return new ").append(type).append("(");
+            for (int i = 0; i < values.size(); i++) {
+                source.append(i > 0 ? "," : "").append("\n                ").append(values.get(i));
+            }
+            source.append("\n        );\n");
+            return;
+        }
+        source.append("        ").append(type).append(" row = new ").append(type).append("();\n");
+        for (int i = 0; i < values.size(); i++) {
+            source.append("        row.").append(columns.get(i).field).append(" = ").append(values.get(i)).append(";\n");
+        }
+        source.append("        return row;\n");
+    }
+
+    private String parse(Column column, int i) {
+        String cell = "buffer, tokenizer.getStart(firstCell + " + i + "), tokenizer.getEnd(firstCell + " + i + ")";
+        if (column.enumClass != null) {
+            return "(" + this.erased(column.type) + ") Parsers.ParseEnum(CONSTANTS_" + i + ", " + cell + ")";
+        }
+        switch (column.type.getKind()) {
+            case INT:
+                return "Parsers.ParseInt(" + cell + ")";
+            case LONG:
+                return "Parsers.ParseLong(" + cell + ")";
+            case SHORT:
+                return "Parsers.ParseShort(" + cell + ")";
+            case BYTE:
+                return "Parsers.ParseByte(" + cell + ")";
+            case FLOAT:
+                return "Parsers.ParseFloat(" + cell + ")";
+            case DOUBLE:
+                return "Parsers.ParseDouble(" + cell + ")";
+            case BOOLEAN:
+                return "Parsers.ParseBoolean(" + cell + ")";
+            case CHAR:
+                return "Parsers.ParseChar(" + cell + ")";
+            default:
+                return "Parsers.ParseString(" + cell + ")";
+        }
+    }
+
+    private String write(Column column) {
+        String value = "row." + column.field;
+        if (column.enumClass != null) {
+            return "out.writeEnum(" + value + ")";
+        }
+        switch (column.type.getKind()) {
+            case INT:
+            case LONG:
+            case SHORT:
+            case BYTE:
+                return "out.writeLong(" + value + ")";
+            case FLOAT:
+                return "out.writeFloat(" + value + ")";
+            case DOUBLE:
+                return "out.writeDouble(" + value + ")";
+            case BOOLEAN:
+                return "out.writeBoolean(" + value + ")";
+            case CHAR:
+                return "out.writeChar(" + value + ")";
+            default:
+                return "out.writeValue(" + value + ")";
+        }
+    }
+
+    private String erased(TypeMirror type) {
+        return this.processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    // Casting a value to the wrapper of a primitive column unboxes it where the column is assigned
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return this.processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+                    .getQualifiedName().toString();
+        }
+        return this.erased(type);
+    }
+
+    private void writeServices() {
+        try {
+            FileObject file = this.processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/Codec");
+            try (Writer out = file.openWriter()) {
+                for (String name : this.generated) {
+                    out.write(name);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write META-INF/services/Codec: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Columnar copy of a table, storing every column as a primitive array instead of one object per row.
+ * <p>
+ * Primitive columns are stored as arrays of their own type. String columns are dictionary encoded into an int[] of
+ * codes pointing into a list of distinct values, and enum columns store the ordinal of their constant the same way.
+ * Row objects are only created when asked for through {@link #getRow(int)}.
+ * <p>
+ * A store is built once, either from a {@link Table} or straight from a CSV file through
+ * {@link Table#loadColumnStore(String)}, and is read only afterwards. The arrays returned by the column getters are
+ * the backing arrays of the store and must not be modified.
+ */
+public class ColumnStore<T extends Table.Row> {
+
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int SHORT = 2;
+    private static final int BYTE = 3;
+    private static final int FLOAT = 4;
+    private static final int DOUBLE = 5;
+    private static final int BOOLEAN = 6;
+    private static final int CHAR = 7;
+    // Strings, enums and any other object type, stored as an int[] of codes into a dictionary. Null is code -1
+    private static final int CODE = 8;
+
+    private final Class<T> rowclass;
+    private final Schema schema;
+
+    private final int[] kinds;
+    private final Object[] data;
+    private final ArrayList<List<Object>> dictionaries = new ArrayList<>();
+    // Reverse lookup of each dictionary, only kept while the store is being built
+    private ArrayList<HashMap<Object, Integer>> encoders = new ArrayList<>();
+
+    private int size = 0;
+    private int capacity;
+
+    ColumnStore(Class<T> rowclass, int capacity) {
+        this.rowclass = rowclass;
+        this.schema = Schema.Of(rowclass);
+        int numColumns = this.schema.getNumColumns();
+        this.kinds = new int[numColumns];
+        this.data = new Object[numColumns];
+        this.capacity = Math.max(capacity, 16);
+
+        for (int i = 0; i < numColumns; i++) {
+            Schema.Accessor accessor = this.schema.getColumn(i);
+            Class<?> type = accessor.getType();
+            if (accessor.getEnumClass() != null) {
+                this.kinds[i] = CODE;
+                this.dictionaries.add(Arrays.asList(accessor.getEnumClass().getEnumConstants()));
+                this.encoders.add(null);
+            } else {
+                this.kinds[i] = type == int.class ? INT
+                        : type == long.class ? LONG
+                        : type == short.class ? SHORT
+                        : type == byte.class ? BYTE
+                        : type == float.class ? FLOAT
+                        : type == double.class ? DOUBLE
+                        : type == boolean.class ? BOOLEAN
+                        : type == char.class ? CHAR
+                        : CODE;
+                this.dictionaries.add(this.kinds[i] == CODE ? new ArrayList<>() : null);
+                this.encoders.add(this.kinds[i] == CODE ? new HashMap<>() : null);
+            }
+            this.data[i] = NewArray(this.kinds[i], this.capacity);
+        }
+    }
+
+    private static Object NewArray(int kind, int capacity) {
+        return switch (kind) {
+            case INT, CODE -> new int[capacity];
+            case LONG -> new long[capacity];
+            case SHORT -> new short[capacity];
+            case BYTE -> new byte[capacity];
+            case FLOAT -> new float[capacity];
+            case DOUBLE -> new double[capacity];
+            case BOOLEAN -> new boolean[capacity];
+            case CHAR -> new char[capacity];
+            default -> throw new IllegalStateException();
+        };
+    }
+
+    private static Object Resize(Object array, int capacity) {
+        if (array instanceof int[]) {
+            return Arrays.copyOf((int[]) array, capacity);
+        } else if (array instanceof long[]) {
+            return Arrays.copyOf((long[]) array, capacity);
+        } else if (array instanceof short[]) {
+            return Arrays.copyOf((short[]) array, capacity);
+        } else if (array instanceof byte[]) {
+            return Arrays.copyOf((byte[]) array, capacity);
+        } else if (array instanceof float[]) {
+            return Arrays.copyOf((float[]) array, capacity);
+        } else if (array instanceof double[]) {
+            return Arrays.copyOf((double[]) array, capacity);
+        } else if (array instanceof boolean[]) {
+            return Arrays.copyOf((boolean[]) array, capacity);
+        }
+        return Arrays.copyOf((char[]) array, capacity);
+    }
+
+    // Makes room for one more row
+    void ensureCapacity() {
+        if (this.size == this.capacity) {
+            this.capacity = this.capacity + (this.capacity >> 1);
+            for (int i = 0; i < this.data.length; i++) {
+                this.data[i] = Resize(this.data[i], this.capacity);
+            }
+        }
+    }
+
+    // Copies the columns of a row into the next free position
+    void add(T row) {
+        this.ensureCapacity();
+        for (int i = 0; i < this.kinds.length; i++) {
+            Schema.Accessor accessor = this.schema.getColumn(i);
+            switch (this.kinds[i]) {
+                case INT -> ((int[]) this.data[i])[this.size] = accessor.getInt(row);
+                case LONG -> ((long[]) this.data[i])[this.size] = accessor.getLong(row);
+                case SHORT -> ((short[]) this.data[i])[this.size] = accessor.getShort(row);
+                case BYTE -> ((byte[]) this.data[i])[this.size] = accessor.getByte(row);
+                case FLOAT -> ((float[]) this.data[i])[this.size] = accessor.getFloat(row);
+                case DOUBLE -> ((double[]) this.data[i])[this.size] = accessor.getDouble(row);
+                case BOOLEAN -> ((boolean[]) this.data[i])[this.size] = accessor.getBoolean(row);
+                case CHAR -> ((char[]) this.data[i])[this.size] = accessor.getChar(row);
+                default -> ((int[]) this.data[i])[this.size] = this.encode(i, accessor.get(row));
+            }
+        }
+        this.size++;
+    }
+
+    /**
+     * Parses a cell into column i of the next free position. Once every column is set the row is committed with
+     * {@link #commit()}. Must be preceded by {@link #ensureCapacity()}
+     * @throws IllegalArgumentException if the cell does not hold a value of the column type
+     */
+    void parse(int i, char[] buffer, int start, int end) {
+        switch (this.kinds[i]) {
+            case INT -> ((int[]) this.data[i])[this.size] = Parsers.ParseInt(buffer, start, end);
+            case LONG -> ((long[]) this.data[i])[this.size] = Parsers.ParseLong(buffer, start, end);
+            case SHORT -> ((short[]) this.data[i])[this.size] = Parsers.ParseShort(buffer, start, end);
+            case BYTE -> ((byte[]) this.data[i])[this.size] = Parsers.ParseByte(buffer, start, end);
+            case FLOAT -> ((float[]) this.data[i])[this.size] = Parsers.ParseFloat(buffer, start, end);
+            case DOUBLE -> ((double[]) this.data[i])[this.size] = Parsers.ParseDouble(buffer, start, end);
+            case BOOLEAN -> ((boolean[]) this.data[i])[this.size] = Parsers.ParseBoolean(buffer, start, end);
+            case CHAR -> ((char[]) this.data[i])[this.size] = Parsers.ParseChar(buffer, start, end);
+            default -> {
+                Parsers.Parser parser = this.schema.getColumn(i).getParser();
+                if (parser == null) {
+                    throw new IllegalArgumentException("Unsupported column type");
+                }
+                if (this.encoders.get(i) == null) {
+                    // Enum columns are coded by ordinal, which the parser validates
+                    ((int[]) this.data[i])[this.size] = ((java.lang.Enum<?>) parser.parse(buffer, start, end)).ordinal();
+                } else {
+                    ((int[]) this.data[i])[this.size] = this.encode(i, parser.parse(buffer, start, end));
+                }
+            }
+        }
+    }
+
+    void commit() {
+        this.size++;
+    }
+
+    private int encode(int column, Object value) {
+        if (value == null) {
+            return -1;
+        }
+        HashMap<Object, Integer> encoder = this.encoders.get(column);
+        if (encoder == null) {
+            return ((java.lang.Enum<?>) value).ordinal();
+        }
+        Integer code = encoder.get(value);
+        if (code == null) {
+            code = encoder.size();
+            encoder.put(value, code);
+            this.dictionaries.get(column).add(value);
+        }
+        return code;
+    }
+
+    // Trims every array to the number of rows and drops the build time lookups
+    ColumnStore<T> finish() {
+        for (int i = 0; i < this.data.length; i++) {
+            this.data[i] = Resize(this.data[i], this.size);
+        }
+        this.capacity = this.size;
+        this.encoders = null;
+        return this;
+    }
+
+    // Backing array of column i, used by Snapshot
+    Object getArray(int i) {
+        return this.data[i];
+    }
+
+    // Dictionary of column i, or null for primitive columns, used by Snapshot
+    List<Object> getDictionary(int i) {
+        return this.dictionaries.get(i);
+    }
+
+    // Replaces the contents of a freshly created store with columns read back by Snapshot
+    ColumnStore<T> restore(Object[] data, List<List<Object>> dictionaries, int size) {
+        for (int i = 0; i < this.data.length; i++) {
+            this.data[i] = data[i];
+            if (dictionaries.get(i) != null) {
+                this.dictionaries.set(i, dictionaries.get(i));
+            }
+        }
+        this.size = size;
+        return this.finish();
+    }
+
+    public Class<T> getRowClass() {
+        return this.rowclass;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public List<String> getColumnNames() {
+        return this.schema.getColumnNames();
+    }
+
+    public int[] getIntColumn(String column) {
+        return (int[]) this.column(column, INT);
+    }
+
+    public long[] getLongColumn(String column) {
+        return (long[]) this.column(column, LONG);
+    }
+
+    public short[] getShortColumn(String column) {
+        return (short[]) this.column(column, SHORT);
+    }
+
+    public byte[] getByteColumn(String column) {
+        return (byte[]) this.column(column, BYTE);
+    }
+
+    public float[] getFloatColumn(String column) {
+        return (float[]) this.column(column, FLOAT);
+    }
+
+    public double[] getDoubleColumn(String column) {
+        return (double[]) this.column(column, DOUBLE);
+    }
+
+    public boolean[] getBooleanColumn(String column) {
+        return (boolean[]) this.column(column, BOOLEAN);
+    }
+
+    public char[] getCharColumn(String column) {
+        return (char[]) this.column(column, CHAR);
+    }
+
+    // Dictionary codes of a String, enum or other object column. -1 stands for null
+    public int[] getCodes(String column) {
+        return (int[]) this.column(column, CODE);
+    }
+
+    // Distinct values of a String, enum or other object column, indexed by code
+    public List<Object> getDictionary(String column) {
+        this.column(column, CODE);
+        return Collections.unmodifiableList(this.dictionaries.get(this.indexOf(column)));
+    }
+
+    // Boxed value of one cell
+    public Object getValue(int row, String column) {
+        return this.getValue(row, this.indexOf(column));
+    }
+
+    private Object getValue(int row, int i) {
+        Object array = this.data[i];
+        return switch (this.kinds[i]) {
+            case INT -> ((int[]) array)[row];
+            case LONG -> ((long[]) array)[row];
+            case SHORT -> ((short[]) array)[row];
+            case BYTE -> ((byte[]) array)[row];
+            case FLOAT -> ((float[]) array)[row];
+            case DOUBLE -> ((double[]) array)[row];
+            case BOOLEAN -> ((boolean[]) array)[row];
+            case CHAR -> ((char[]) array)[row];
+            default -> {
+                int code = ((int[]) array)[row];
+                yield code < 0 ? null : this.dictionaries.get(i).get(code);
+            }
+        };
+    }
+
+    /**
+     * Materializes one row, through the constructor taking every column if the Row class declares one and otherwise
+     * through its default constructor
+     */
+    public T getRow(int row) throws ReflectiveOperationException {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + this.size);
+        }
+        if (this.schema.hasConstructor()) {
+            Object[] args = new Object[this.kinds.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = this.getValue(row, i);
+            }
+            return this.rowclass.cast(this.schema.newInstance(args));
+        }
+
+        T instance = this.rowclass.cast(this.schema.newInstance());
+        for (int i = 0; i < this.kinds.length; i++) {
+            Schema.Accessor accessor = this.schema.getColumn(i);
+            Object array = this.data[i];
+            switch (this.kinds[i]) {
+                case INT -> accessor.setInt(instance, ((int[]) array)[row]);
+                case LONG -> accessor.setLong(instance, ((long[]) array)[row]);
+                case SHORT -> accessor.setShort(instance, ((short[]) array)[row]);
+                case BYTE -> accessor.setByte(instance, ((byte[]) array)[row]);
+                case FLOAT -> accessor.setFloat(instance, ((float[]) array)[row]);
+                case DOUBLE -> accessor.setDouble(instance, ((double[]) array)[row]);
+                case BOOLEAN -> accessor.setBoolean(instance, ((boolean[]) array)[row]);
+                case CHAR -> accessor.setChar(instance, ((char[]) array)[row]);
+                default -> accessor.set(instance, this.getValue(row, i));
+            }
+        }
+        return instance;
+    }
+
+    private int indexOf(String column) {
+        int i = this.schema.getColumnNames().indexOf(column);
+        if (i < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Column %s does not exist on %s", column, this.rowclass.getName())
+            );
+        }
+        return i;
+    }
+
+    private Object column(String column, int kind) {
+        int i = this.indexOf(column);
+        if (this.kinds[i] != kind) {
+            throw new IllegalArgumentException(
+                    String.format("Column %s has type %s", column, this.schema.getColumn(i).getType().getName())
+            );
+        }
+        return this.data[i];
+    }
+
+}
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Thread safe wrapper around a {@link Table}, for tables shared between many reader threads and a few writers.
+ * <p>
+ * Reads run against an immutable snapshot of the table and never block. Every write is applied to a copy of the
+ * current snapshot under a lock, and the copy is then published as the new snapshot, so readers always see the table
+ * either before or after a write, never in between.
+ * <p>
+ * Each write therefore costs O(n) in the number of rows, whatever it changes, since the rows, the duplicate keys and
+ * every index are copied. A single {@link #addRow(Table.Row)} is as expensive as adding thousands of rows, so bulk
+ * changes should go through {@link #addRows(Collection)}, {@link #deleteAll(Table.RowFilter)} or one
+ * {@link #update(Function)}, which copy the table once for the whole batch.
+ * <p>
+ * Rows are shared between snapshots, so they must not be changed in place once added.
+ */
+public class ConcurrentTable<T extends Table.Row> {
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Table<T> snapshot;
+
+    // Takes a copy of the table, which must not be used by the caller afterwards
+    public ConcurrentTable(Table<T> table) {
+        Table<T> copy = table.copy();
+        copy.makeReadOnly();
+        this.snapshot = copy;
+    }
+
+    /**
+     * Returns the current snapshot, which does not change even while other threads write to this table.
+     * The snapshot is shared with other readers, so it is read only: methods that would change it throw an
+     * UnsupportedOperationException, and getRows returns a copy
+     */
+    public Table<T> snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Applies a change to a copy of the current snapshot and publishes it once the change returns.
+     * Writers are applied one at a time; if the change throws, the snapshot is left as it was
+     * @return The value returned by the change
+     */
+    public <R> R update(Function<Table<T>, R> change) {
+        this.writeLock.lock();
+        try {
+            Table<T> copy = this.snapshot.copy();
+            R result = change.apply(copy);
+            copy.makeReadOnly();
+            this.snapshot = copy;
+            return result;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    public boolean addRow(T row) {
+        return this.update(table -> table.addRow(row));
+    }
+
+    // Adds the rows in a single write, stopping at the first one that cannot be added like Table.addAllRows
+    public boolean addAllRows(List<T> rows) {
+        return this.update(table -> {
+            for (T row : rows) {
+                if (!table.addRow(row)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Adds every row of a collection in a single write, skipping nulls and duplicates like Table.addRows
+     * @return The number of rows added
+     */
+    public int addRows(Collection<T> rows) {
+        return this.update(table -> table.addRows(rows));
+    }
+
+    public boolean delete(T row) {
+        return this.update(table -> table.delete(row));
+    }
+
+    public boolean delete(Table.RowFilter<T> filter) {
+        return this.update(table -> table.delete(filter));
+    }
+
+    public int deleteAll(Table.RowFilter<T> filter) {
+        return this.update(table -> table.deleteAll(filter));
+    }
+
+    // Rows of the current snapshot, which cannot be modified
+    public List<T> getRows() {
+        return this.snapshot.rowsView();
+    }
+
+    public T find(Table.RowFilter<T> filter) {
+        return this.snapshot.find(filter);
+    }
+
+    public ArrayList<T> findAll(Table.RowFilter<T> filter) {
+        return this.snapshot.findAll(filter);
+    }
+
+    public ArrayList<T> findBy(String column, Object value) throws Exceptions.InvalidColumn {
+        return this.snapshot.findBy(column, value);
+    }
+
+    public ArrayList<T> findRange(String column, Object lo, Object hi) throws Exceptions.InvalidColumn {
+        return this.snapshot.findRange(column, lo, hi);
+    }
+
+    public ArrayList<?> getColumn(String column) {
+        return this.snapshot.getColumn(column);
+    }
+
+    public boolean contains(T row) {
+        return this.snapshot.contains(row);
+    }
+
+    public boolean contains(Table.RowFilter<T> filter) {
+        return this.snapshot.contains(filter);
+    }
+
+    // Rows of the current snapshot in sorted order. Unlike Table.sort, the table itself is left as it is
+    public ArrayList<T> sorted(Sort.Sorter<T> sorter) {
+        ArrayList<T> list = new ArrayList<>(this.snapshot.rowsView());
+        list.sort(sorter::sort);
+        return list;
+    }
+
+    public ArrayList<T> topK(Sort.Sorter<T> sorter, int k) {
+        return this.snapshot.topK(sorter, k);
+    }
+
+    public ArrayList<T> page(Sort.Sorter<T> sorter, int offset, int limit) {
+        return this.snapshot.page(sorter, offset, limit);
+    }
+
+    // Sorts the rows of the table itself, as a write
+    public void sort(Sort.Sorter<T> sorter) {
+        this.update(table -> {
+            table.sort(sorter);
+            return null;
+        });
+    }
+
+    public int getNumRows() {
+        return this.snapshot.getNumRows();
+    }
+
+}
@@ -0,0 +1,137 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR events emitted by {@link Table}, recorded whenever a flight recording has them enabled, for example with
+ * {@code -XX:StartFlightRecording}. Load and save events carry the same numbers as {@link Metrics}.
+ */
+public class Events {
+
+    @Name("csv.Load")
+    @Label("CSV Load")
+    @Category("CSV")
+    @StackTrace(false)
+    public static class Load extends Event {
+
+        @Label("File")
+        String path;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Rejected Rows")
+        long rejected;
+
+        @Label("Constructor Fallbacks")
+        long constructorFallbacks;
+
+        @Label("Tokenize Time")
+        @Timespan
+        long tokenizeTime;
+
+        @Label("Parse Time")
+        @Timespan
+        long parseTime;
+
+        @Label("Construct Time")
+        @Timespan
+        long constructTime;
+
+        @Label("Add Time")
+        @Timespan
+        long addTime;
+
+        @Label("Failed")
+        boolean failed;
+
+        void set(Metrics metrics) {
+            this.path = metrics.getFilePath();
+            this.rows = metrics.getRows();
+            this.bytes = metrics.getBytes();
+            this.rejected = metrics.getRejected();
+            this.constructorFallbacks = metrics.getConstructorFallbacks();
+            this.tokenizeTime = metrics.getTokenizeNanos();
+            this.parseTime = metrics.getParseNanos();
+            this.constructTime = metrics.getConstructNanos();
+            this.addTime = metrics.getAddNanos();
+            this.failed = metrics.getError() != null;
+        }
+
+    }
+
+    @Name("csv.Save")
+    @Label("CSV Save")
+    @Category("CSV")
+    @StackTrace(false)
+    public static class Save extends Event {
+
+        @Label("File")
+        String path;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Write Time")
+        @Timespan
+        long writeTime;
+
+        @Label("Failed")
+        boolean failed;
+
+        void set(Metrics metrics) {
+            this.path = metrics.getFilePath();
+            this.rows = metrics.getRows();
+            this.bytes = metrics.getBytes();
+            this.writeTime = metrics.getWriteNanos();
+            this.failed = metrics.getError() != null;
+        }
+
+    }
+
+    @Name("csv.RowRejected")
+    @Label("CSV Row Rejected")
+    @Description("A row of a CSV file that could not be loaded")
+    @Category("CSV")
+    @StackTrace(false)
+    public static class RowRejected extends Event {
+
+        @Label("File")
+        String path;
+
+        @Label("Line")
+        int line;
+
+        @Label("Reason")
+        String reason;
+
+    }
+
+    @Name("csv.ConstructorFallback")
+    @Label("CSV Constructor Fallback")
+    @Description("A row created through the default constructor after the constructor taking every column failed")
+    @Category("CSV")
+    public static class ConstructorFallback extends Event {
+
+        @Label("Row Class")
+        Class<?> rowClass;
+
+        @Label("Reason")
+        String reason;
+
+    }
+
+}
@@ -12,4 +12,18 @@ public class Exceptions {
         }
     }
 
+    // Carries a Parse exception out of code that cannot throw checked exceptions, such as a Stream pipeline
+    public static class UncheckedParse extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UncheckedParse(Parse cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Parse getCause() {
+            return (Parse) super.getCause();
+        }
+    }
+
 }
@@ -0,0 +1,226 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Sorts a CSV file into another without holding more than a bounded amount of rows in memory.
+ * <p>
+ * Rows are streamed from the input and collected into runs until their estimated size reaches the memory budget.
+ * Each run is sorted and written to a temporary file, and the runs are then merged into the output with a heap over
+ * the first row of every run. When there are more runs than can be merged at once, they are merged in several passes.
+ * The sort is stable, and the output is written to a temporary file that atomically replaces the target once complete,
+ * like {@link Table#saveCSV(String)}.
+ */
+public class ExternalSort<T extends Table.Row> {
+
+    private static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    // Most runs merged at once, which bounds the number of files open during a merge
+    private static final int DEFAULT_MAX_MERGE = 64;
+
+    private final Class<T> rowclass;
+    private final Sort.Sorter<T> sorter;
+    private final Schema schema;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private int maxMerge = DEFAULT_MAX_MERGE;
+    private Path tempDirectory;
+
+    public ExternalSort(Class<T> rowclass, Sort.Sorter<T> sorter) {
+        this.rowclass = rowclass;
+        this.sorter = sorter;
+        this.schema = Schema.Of(rowclass);
+    }
+
+    /**
+     * Sets roughly how many bytes of rows are kept in memory at once, 64 MB by default.
+     * The size of a row is estimated from its columns, so the heap should leave some room above the budget
+     */
+    public ExternalSort<T> memoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        return this;
+    }
+
+    public ExternalSort<T> maxMerge(int runs) {
+        this.maxMerge = Math.max(2, runs);
+        return this;
+    }
+
+    // Directory for the sorted runs, the directory of the output file by default
+    public ExternalSort<T> tempDirectory(Path directory) {
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Sorts the rows of the input file into the output file, which may be the same file.
+     * The header and every row are checked the same way as in {@link Table#loadCSV(String)}, and duplicate rows are kept
+     */
+    public void sort(String inputPath, String outputPath) throws IOException, Exceptions.Parse {
+        Path output = Path.of(outputPath).toAbsolutePath();
+        Path directory = this.tempDirectory != null ? this.tempDirectory : output.getParent();
+        // Every temporary run written, deleted once the sort is done or has failed
+        ArrayList<Path> temps = new ArrayList<>();
+        ArrayList<Path> runs = new ArrayList<>();
+        try {
+            ArrayList<T> rowsInRun = new ArrayList<>();
+            long runSize = 0;
+            try (Stream<T> rows = new Table<>(this.rowclass, null, true).streamCSV(inputPath)) {
+                Iterator<T> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    T row = iterator.next();
+                    rowsInRun.add(row);
+                    runSize += this.estimateSize(row);
+                    if (runSize >= this.memoryBudget) {
+                        runs.add(this.spill(rowsInRun, directory, temps));
+                        rowsInRun.clear();
+                        runSize = 0;
+                    }
+                }
+            } catch (Exceptions.UncheckedParse e) {
+                throw e.getCause();
+            }
+
+            // A file that fits in memory is written out straight away
+            if (runs.isEmpty()) {
+                rowsInRun.sort(this.sorter::sort);
+                this.replace(this.write(rowsInRun.iterator(), directory, output), output);
+                return;
+            }
+            if (!rowsInRun.isEmpty()) {
+                runs.add(this.spill(rowsInRun, directory, temps));
+            }
+            // Lets the rows of the last run be collected while merging
+            rowsInRun = null;
+
+            while (runs.size() > this.maxMerge) {
+                ArrayList<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += this.maxMerge) {
+                    List<Path> group = runs.subList(i, Math.min(i + this.maxMerge, runs.size()));
+                    Path run = this.merge(group, directory, null);
+                    temps.add(run);
+                    merged.add(run);
+                    for (Path path : group) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+                runs = merged;
+            }
+            this.replace(this.merge(runs, directory, output), output);
+        } finally {
+            for (Path path : temps) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // Sorts a run and writes it to a temporary file
+    private Path spill(ArrayList<T> run, Path directory, List<Path> temps) throws IOException {
+        run.sort(this.sorter::sort);
+        Path path = this.write(run.iterator(), directory, null);
+        temps.add(path);
+        return path;
+    }
+
+    // Writes rows to a new temporary file, named after the target if there is one
+    private Path write(Iterator<T> rows, Path directory, Path target) throws IOException {
+        Path temp = target != null
+                ? AtomicFile.CreateTemp(target)
+                : Files.createTempFile(directory, "run", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+            RowWriter<T> writer = new RowWriter<>(out, this.rowclass);
+            writer.writeHeader();
+            while (rows.hasNext()) {
+                writer.writeRow(rows.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    // Current row of a run being merged
+    private static class Head<T> {
+        private final Iterator<T> rows;
+        private final int run;
+        private T row;
+
+        private Head(Iterator<T> rows, int run) {
+            this.rows = rows;
+            this.run = run;
+        }
+    }
+
+    // Merges sorted runs into one new temporary file
+    private Path merge(List<Path> runs, Path directory, Path target) throws IOException, Exceptions.Parse {
+        ArrayList<Stream<T>> streams = new ArrayList<>();
+        try {
+            // Equal rows are taken from the earlier run first, which keeps the sort stable
+            PriorityQueue<Head<T>> heap = new PriorityQueue<>(runs.size(), (a, b) -> {
+                int result = this.sorter.sort(a.row, b.row);
+                return result != 0 ? result : Integer.compare(a.run, b.run);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                Stream<T> stream = new Table<>(this.rowclass, null, true).streamCSV(runs.get(i).toString());
+                streams.add(stream);
+                Head<T> head = new Head<>(stream.iterator(), i);
+                if (head.rows.hasNext()) {
+                    head.row = head.rows.next();
+                    heap.add(head);
+                }
+            }
+
+            Iterator<T> merged = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !heap.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    Head<T> head = heap.poll();
+                    T row = head.row;
+                    if (head.rows.hasNext()) {
+                        head.row = head.rows.next();
+                        heap.add(head);
+                    }
+                    return row;
+                }
+            };
+            return this.write(merged, directory, target);
+        } catch (Exceptions.UncheckedParse e) {
+            throw e.getCause();
+        } finally {
+            for (Stream<T> stream : streams) {
+                stream.close();
+            }
+        }
+    }
+
+    private void replace(Path temp, Path target) throws IOException {
+        AtomicFile.Commit(temp, target);
+    }
+
+    // Rough number of bytes a row takes on the heap: an object header, a reference or primitive per column, and the
+    // contents of any String
+    private long estimateSize(T row) {
+        long size = 16 + 8L * this.schema.getNumColumns();
+        for (int i = 0; i < this.schema.getNumColumns(); i++) {
+            Schema.Accessor accessor = this.schema.getColumn(i);
+            if (accessor.getType() == String.class) {
+                Object value = accessor.get(row);
+                if (value != null) {
+                    size += 40 + ((String) value).length();
+                }
+            }
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,306 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Secondary index over one column of a {@link Table}, kept in sync by the table as rows are added and deleted.
+ * <p>
+ * Rows are indexed by the value their column has when they are added, so a row whose column is changed in place
+ * must be deleted and added again for the index to see the change.
+ */
+public abstract class Index<T> {
+
+    protected final Schema.Accessor accessor;
+
+    protected Index(Schema.Accessor accessor) {
+        this.accessor = accessor;
+    }
+
+    abstract void add(T row);
+
+    abstract void remove(T row);
+
+    abstract void clear();
+
+    // Index over the same rows whose buckets can be changed without affecting this one
+    abstract Index<T> copy();
+
+    // Rows whose column equals the value, in the order they were added
+    public abstract ArrayList<T> find(Object value);
+
+    protected Object normalize(Object value) {
+        return Normalize(this.accessor, value);
+    }
+
+    // Returned by Normalize for a value that no value of the column can be equal to
+    static final Object NO_MATCH = new Object() {
+        public String toString() {
+            return "NO_MATCH";
+        }
+    };
+
+    /**
+     * Converts a value given by the caller to the type a column stores, so that for example a long column can be
+     * queried with an int, an enum column with an ordinal, or any column with the string form of a value.
+     * Numbers are only converted when the column can hold them exactly, so 1.5 or 4294967301 never equal an int.
+     * Floats and doubles are taken at the decimal value they print as, so a float column holding 1.8f equals 1.8.
+     * A string the parser of the column rejects is not a value of the column either
+     * @return The converted value, or {@link #NO_MATCH} if no value of the column can equal it
+     */
+    public static Object Normalize(Schema.Accessor accessor, Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        Class<?> type = accessor.getType();
+        if (accessor.getEnumClass() != null && value instanceof Number) {
+            Object[] constants = accessor.getEnumClass().getEnumConstants();
+            Object ordinal = Convert((Number) value, int.class);
+            return ordinal != NO_MATCH && (int) ordinal >= 0 && (int) ordinal < constants.length
+                    ? constants[(int) ordinal]
+                    : NO_MATCH;
+        }
+        if (value instanceof Number && type.isPrimitive() && type != boolean.class && type != char.class) {
+            return Convert((Number) value, type);
+        }
+        if (value instanceof String && type != String.class && accessor.getParser() != null) {
+            char[] chars = ((String) value).trim().toCharArray();
+            try {
+                return accessor.getParser().parse(chars, 0, chars.length);
+            } catch (IllegalArgumentException e) {
+                return NO_MATCH;
+            }
+        }
+        return value;
+    }
+
+    // Converts a number to a numeric primitive type if that type can hold it exactly
+    private static Object Convert(Number number, Class<?> type) {
+        Number converted;
+        if (type == int.class) {
+            converted = number.intValue();
+        } else if (type == long.class) {
+            converted = number.longValue();
+        } else if (type == float.class) {
+            converted = number.floatValue();
+        } else if (type == double.class) {
+            converted = number.doubleValue();
+        } else if (type == short.class) {
+            converted = number.shortValue();
+        } else {
+            converted = number.byteValue();
+        }
+        if (converted.getClass() == number.getClass()) {
+            return converted;
+        }
+        if (IsIntegral(number) && IsIntegral(converted)) {
+            return converted.longValue() == number.longValue() ? converted : NO_MATCH;
+        }
+        BigDecimal original = Decimal(number);
+        return original != null && original.compareTo(Decimal(converted)) == 0 ? converted : NO_MATCH;
+    }
+
+    /**
+     * Converts the bound of a range to the type a column stores, rounding it inward so the range keeps exactly the
+     * values it held before the conversion, for example a lower bound of 1.5 to 2 for an int column
+     * @return The converted bound, which may be a value of any type if the bound is beyond every value of the column,
+     * or {@link #NO_MATCH} if it is a string the column cannot parse, which no range contains
+     */
+    static Object Bound(Schema.Accessor accessor, Object bound, boolean lower) {
+        Object value = Normalize(accessor, bound);
+        if (value != NO_MATCH || !(bound instanceof Number)) {
+            return value;
+        }
+        Class<?> type = accessor.getType();
+        BigDecimal decimal = Decimal((Number) bound);
+        if (decimal == null || accessor.getEnumClass() != null) {
+            throw new IllegalArgumentException("Cannot compare " + bound + " to column " + accessor.getField().getName());
+        }
+        if (type == float.class) {
+            float f = decimal.floatValue();
+            if (Float.isInfinite(f)) {
+                return f;
+            }
+            return lower && new BigDecimal(f).compareTo(decimal) < 0 ? Math.nextUp(f)
+                    : !lower && new BigDecimal(f).compareTo(decimal) > 0 ? Math.nextDown(f) : f;
+        } else if (type == double.class) {
+            double d = decimal.doubleValue();
+            if (Double.isInfinite(d)) {
+                return d;
+            }
+            return lower && new BigDecimal(d).compareTo(decimal) < 0 ? Math.nextUp(d)
+                    : !lower && new BigDecimal(d).compareTo(decimal) > 0 ? Math.nextDown(d) : d;
+        }
+        BigDecimal rounded = decimal.setScale(0, lower ? RoundingMode.CEILING : RoundingMode.FLOOR);
+        long min = type == int.class ? Integer.MIN_VALUE : type == short.class ? Short.MIN_VALUE
+                : type == byte.class ? Byte.MIN_VALUE : Long.MIN_VALUE;
+        long max = type == int.class ? Integer.MAX_VALUE : type == short.class ? Short.MAX_VALUE
+                : type == byte.class ? Byte.MAX_VALUE : Long.MAX_VALUE;
+        long clamped = rounded.max(BigDecimal.valueOf(min)).min(BigDecimal.valueOf(max)).longValue();
+        return Convert(clamped, type);
+    }
+
+    private static boolean IsIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    /**
+     * The exact decimal value of a number, with floats and doubles taken at the shortest decimal they print as
+     * @return null for NaN and infinities
+     */
+    static BigDecimal Decimal(Number number) {
+        if (IsIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        double d = number.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return null;
+        }
+        return new BigDecimal(number instanceof Float ? Float.toString(number.floatValue()) : Double.toString(d));
+    }
+
+    // Removes a row from its bucket by identity, dropping the bucket once it is empty
+    protected static <K, T> void RemoveFromBucket(Map<K, ArrayList<T>> buckets, K key, T row) {
+        ArrayList<T> bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == row) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    // Equality index backed by a HashMap
+    public static class Hash<T> extends Index<T> {
+
+        private final HashMap<Object, ArrayList<T>> buckets = new HashMap<>();
+
+        public Hash(Schema.Accessor accessor) {
+            super(accessor);
+        }
+
+        @Override
+        void add(T row) {
+            this.buckets.computeIfAbsent(this.accessor.get(row), k -> new ArrayList<>(1)).add(row);
+        }
+
+        @Override
+        void remove(T row) {
+            RemoveFromBucket(this.buckets, this.accessor.get(row), row);
+        }
+
+        @Override
+        void clear() {
+            this.buckets.clear();
+        }
+
+        @Override
+        Index<T> copy() {
+            Hash<T> copy = new Hash<>(this.accessor);
+            copy.buckets.putAll(this.buckets);
+            copy.buckets.replaceAll((k, bucket) -> new ArrayList<>(bucket));
+            return copy;
+        }
+
+        @Override
+        public ArrayList<T> find(Object value) {
+            ArrayList<T> bucket = this.buckets.get(this.normalize(value));
+            return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+        }
+
+    }
+
+    /**
+     * Range index backed by a TreeMap, ordered by the natural order of the column values.
+     * Rows whose column is null are not indexed
+     */
+    public static class Sorted<T> extends Index<T> {
+
+        private final TreeMap<Object, ArrayList<T>> buckets = new TreeMap<>();
+
+        public Sorted(Schema.Accessor accessor) {
+            super(accessor);
+        }
+
+        @Override
+        void add(T row) {
+            Object value = this.accessor.get(row);
+            if (value != null) {
+                this.buckets.computeIfAbsent(value, k -> new ArrayList<>(1)).add(row);
+            }
+        }
+
+        @Override
+        void remove(T row) {
+            Object value = this.accessor.get(row);
+            if (value != null) {
+                RemoveFromBucket(this.buckets, value, row);
+            }
+        }
+
+        @Override
+        void clear() {
+            this.buckets.clear();
+        }
+
+        @Override
+        Index<T> copy() {
+            Sorted<T> copy = new Sorted<>(this.accessor);
+            copy.buckets.putAll(this.buckets);
+            copy.buckets.replaceAll((k, bucket) -> new ArrayList<>(bucket));
+            return copy;
+        }
+
+        @Override
+        public ArrayList<T> find(Object value) {
+            value = this.normalize(value);
+            ArrayList<T> bucket = value == null || value == NO_MATCH ? null : this.buckets.get(value);
+            return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+        }
+
+        /**
+         * Returns the rows whose column lies between lo and hi, both inclusive, in ascending order of the column
+         * @param lo Lower bound, or null for no lower bound
+         * @param hi Upper bound, or null for no upper bound
+         */
+        public ArrayList<T> range(Object lo, Object hi) {
+            lo = lo == null ? null : Bound(this.accessor, lo, true);
+            hi = hi == null ? null : Bound(this.accessor, hi, false);
+            if (lo == NO_MATCH || hi == NO_MATCH) {
+                return new ArrayList<>();
+            }
+            NavigableMap<Object, ArrayList<T>> range = this.buckets;
+            if (lo != null) {
+                range = range.tailMap(lo, true);
+            }
+            if (hi != null) {
+                range = range.headMap(hi, true);
+            }
+
+            ArrayList<T> list = new ArrayList<>();
+            for (ArrayList<T> bucket : range.values()) {
+                list.addAll(bucket);
+            }
+            return list;
+        }
+
+    }
+
+}
@@ -0,0 +1,268 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Equi join of two tables on one column each, created through {@link Table#join(Table, String, String)} or
+ * {@link Table#leftJoin(Table, String, String)}.
+ * <p>
+ * A hash table is built over the rows of the smaller table, which the rows of the larger table are then looked up in
+ * one by one, so a join takes time proportional to the size of both tables instead of their product.
+ * <p>
+ * Values of columns of the same type are matched with equals. Numbers of different types match when they have the
+ * same value, with floats and doubles taken at the decimal value they print as, and enums match numbers by their
+ * ordinal. Strings match values of other types they parse to. Matching is the same whichever table is the smaller
+ * one, and null values never match.
+ * <p>
+ * Results follow the order of the larger table, each of its rows followed by its matches in the order of the smaller
+ * table. For a left join where this table is the smaller one, its rows without a match come last.
+ */
+public class Join<L extends Table.Row, R extends Table.Row> {
+
+    // Rows of the larger table per task below which the lookups are not split any further
+    private static final int MIN_SPLIT_SIZE = 1 << 13;
+
+    private final List<L> left;
+    private final List<R> right;
+    private final Schema.Accessor leftAccessor;
+    private final Schema.Accessor rightAccessor;
+    private final boolean outer;
+    private ForkJoinPool pool;
+
+    Join(List<L> left, Schema.Accessor leftAccessor, List<R> right, Schema.Accessor rightAccessor, boolean outer) {
+        this.left = left;
+        this.right = right;
+        this.leftAccessor = leftAccessor;
+        this.rightAccessor = rightAccessor;
+        this.outer = outer;
+    }
+
+    public static class Pair<L, R> {
+
+        private final L left;
+        private final R right;
+
+        public Pair(L left, R right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public L getLeft() {
+            return this.left;
+        }
+
+        // Null for a row of a left join without a match
+        public R getRight() {
+            return this.right;
+        }
+
+        public String toString() {
+            return this.left + " " + this.right;
+        }
+
+    }
+
+    // Runs the lookups of the larger table as separate tasks on the given pool
+    public Join<L, R> parallel(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public Join<L, R> parallel() {
+        return this.parallel(ForkJoinPool.commonPool());
+    }
+
+    public ArrayList<Pair<L, R>> run() {
+        return this.run(Pair::new);
+    }
+
+    /**
+     * Runs the join, passing every matching pair of rows to the projection instead of creating a Pair for it.
+     * For a left join, rows without a match are passed along with null
+     */
+    public <V> ArrayList<V> run(BiFunction<L, R, V> projection) {
+        boolean buildLeft = this.left.size() < this.right.size();
+        Function<Object, Object> leftKey = KeyFor(this.leftAccessor, this.rightAccessor);
+        Function<Object, Object> rightKey = KeyFor(this.rightAccessor, this.leftAccessor);
+        Probe<V> probe = buildLeft
+                ? new Probe<>(this.left, this.leftAccessor, leftKey, this.right, this.rightAccessor, rightKey, projection)
+                : new Probe<>(this.right, this.rightAccessor, rightKey, this.left, this.leftAccessor, leftKey, projection);
+
+        ArrayList<V> results;
+        if (this.pool == null) {
+            results = probe.probe(0, probe.rows.size());
+        } else {
+            int splitSize = Math.max(MIN_SPLIT_SIZE, probe.rows.size() / (this.pool.getParallelism() * 4));
+            results = this.pool.invoke(new Task<>(probe, 0, probe.rows.size(), splitSize));
+        }
+
+        if (this.outer && buildLeft) {
+            for (int i = 0; i < this.left.size(); i++) {
+                if (!probe.matched[i]) {
+                    results.add(projection.apply(this.left.get(i), null));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the function turning values of a column into join keys, which are equal to the keys of the values of the
+     * other column exactly when the values match. Keys are null for values that cannot match anything
+     */
+    private static Function<Object, Object> KeyFor(Schema.Accessor accessor, Schema.Accessor other) {
+        if (accessor.getType() == other.getType() && accessor.getEnumClass() == other.getEnumClass()) {
+            return value -> value;
+        }
+        if (IsNumeric(accessor) && IsNumeric(other)) {
+            boolean integral = IsIntegral(accessor) && IsIntegral(other);
+            boolean enumeration = accessor.getEnumClass() != null;
+            return value -> {
+                Number number = enumeration ? (Number) ((java.lang.Enum<?>) value).ordinal() : (Number) value;
+                if (integral) {
+                    return number.longValue();
+                }
+                BigDecimal decimal = Index.Decimal(number);
+                return decimal == null ? null : decimal.stripTrailingZeros();
+            };
+        }
+        if (accessor.getType() == String.class && other.getParser() != null) {
+            return value -> {
+                char[] chars = ((String) value).trim().toCharArray();
+                try {
+                    return other.getParser().parse(chars, 0, chars.length);
+                } catch (IllegalArgumentException e) {
+                    // A string that does not parse cannot be equal to any value of the other column
+                    return null;
+                }
+            };
+        }
+        return value -> value;
+    }
+
+    // Whether the values of the column are numbers, counting enums as their ordinal
+    private static boolean IsNumeric(Schema.Accessor accessor) {
+        Class<?> type = accessor.getType();
+        return accessor.getEnumClass() != null || (type.isPrimitive() && type != boolean.class && type != char.class);
+    }
+
+    private static boolean IsIntegral(Schema.Accessor accessor) {
+        Class<?> type = accessor.getType();
+        return accessor.getEnumClass() != null || type == int.class || type == long.class || type == short.class || type == byte.class;
+    }
+
+    // Hash table over the rows of the smaller table, looked up with the rows of the larger one
+    private class Probe<V> {
+
+        private final List<?> built;
+        private final List<?> rows;
+        private final Schema.Accessor accessor;
+        private final Function<Object, Object> key;
+        private final BiFunction<L, R, V> projection;
+        private final boolean builtLeft;
+
+        // Position of the first built row with each value, and of the next row with the same value as each row
+        private final HashMap<Object, Integer> heads = new HashMap<>();
+        private final int[] next;
+        // Built rows that matched at least once, only needed when the rows of a left join were built
+        private final boolean[] matched;
+
+        private Probe(List<?> built, Schema.Accessor builtAccessor, Function<Object, Object> builtKey,
+                      List<?> rows, Schema.Accessor accessor, Function<Object, Object> key, BiFunction<L, R, V> projection) {
+            this.built = built;
+            this.rows = rows;
+            this.accessor = accessor;
+            this.key = key;
+            this.projection = projection;
+            this.builtLeft = built == Join.this.left;
+            this.matched = this.builtLeft && Join.this.outer ? new boolean[built.size()] : null;
+
+            this.next = new int[built.size()];
+            Arrays.fill(this.next, -1);
+            // Chains are built back to front so that they list the rows of each value in table order
+            for (int i = built.size() - 1; i >= 0; i--) {
+                Object value = builtAccessor.get(built.get(i));
+                Object builtValue = value == null ? null : builtKey.apply(value);
+                if (builtValue != null) {
+                    Integer head = this.heads.put(builtValue, i);
+                    if (head != null) {
+                        this.next[i] = head;
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private ArrayList<V> probe(int start, int end) {
+            ArrayList<V> results = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                Object row = this.rows.get(i);
+                Integer head = this.lookup(this.accessor.get(row));
+                if (head == null) {
+                    if (Join.this.outer && !this.builtLeft) {
+                        results.add(this.projection.apply((L) row, null));
+                    }
+                    continue;
+                }
+                for (int j = head; j >= 0; j = this.next[j]) {
+                    if (this.builtLeft) {
+                        if (this.matched != null) {
+                            this.matched[j] = true;
+                        }
+                        results.add(this.projection.apply((L) this.built.get(j), (R) row));
+                    } else {
+                        results.add(this.projection.apply((L) row, (R) this.built.get(j)));
+                    }
+                }
+            }
+            return results;
+        }
+
+        private Integer lookup(Object value) {
+            Object key = value == null ? null : this.key.apply(value);
+            return key == null ? null : this.heads.get(key);
+        }
+
+    }
+
+    private static class Task<V> extends RecursiveTask<ArrayList<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Join<?, ?>.Probe<V> probe;
+        private final int start;
+        private final int end;
+        private final int splitSize;
+
+        private Task(Join<?, ?>.Probe<V> probe, int start, int end, int splitSize) {
+            this.probe = probe;
+            this.start = start;
+            this.end = end;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        protected ArrayList<V> compute() {
+            if (this.end - this.start <= this.splitSize) {
+                return this.probe.probe(this.start, this.end);
+            }
+
+            int middle = (this.start + this.end) >>> 1;
+            Task<V> left = new Task<>(this.probe, this.start, middle, this.splitSize);
+            Task<V> right = new Task<>(this.probe, middle, this.end, this.splitSize);
+            left.fork();
+            ArrayList<V> rightResults = right.compute();
+            ArrayList<V> results = left.join();
+            results.addAll(rightResults);
+            return results;
+        }
+
+    }
+
+}
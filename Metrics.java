@@ -0,0 +1,125 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a single load or save of a {@link Table} did and where it spent its time, passed to the
+ * {@link Table.Listener} of the table once the operation is done.
+ * <p>
+ * Phase times are only measured while the table has a listener or the matching JFR event is enabled, and are zero
+ * otherwise. Reading the file happens inside the tokenizer as it needs more input, so it is part of the tokenize phase.
+ * Only {@link Table#loadCSV(String)} and saves time their phases; the other loads, whose phases overlap on the threads
+ * of a pool or are skipped by a cache, report their total time only.
+ */
+public class Metrics {
+
+    private final String operation;
+    private final String filePath;
+
+    long rows;
+    long bytes;
+    long rejected;
+    long constructorFallbacks;
+
+    long tokenizeNanos;
+    long parseNanos;
+    long constructNanos;
+    long addNanos;
+    long writeNanos;
+    long totalNanos;
+    // When the operation started, from System.nanoTime
+    long startNanos;
+
+    Exception error;
+
+    // Whether the phases are being timed
+    boolean timed = true;
+
+    Metrics(String operation, String filePath) {
+        this.operation = operation;
+        this.filePath = filePath;
+    }
+
+    // "load" or "save"
+    public String getOperation() {
+        return this.operation;
+    }
+
+    public String getFilePath() {
+        return this.filePath;
+    }
+
+    // Rows loaded into the table or written to the file
+    public long getRows() {
+        return this.rows;
+    }
+
+    // Size of the file read or written
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    // Rows left out of the table, either as duplicates or because they failed to parse
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    // Rows created through the default constructor because the constructor taking every column failed. Rows created
+    // through a generated Codec never fall back
+    public long getConstructorFallbacks() {
+        return this.constructorFallbacks;
+    }
+
+    // Time spent reading the file and splitting it into cells
+    public long getTokenizeNanos() {
+        return this.tokenizeNanos;
+    }
+
+    // Time spent converting and type checking cells
+    public long getParseNanos() {
+        return this.parseNanos;
+    }
+
+    // Time spent creating Row objects. Rows read through a generated Codec are created as they are parsed, so that
+    // time counts as parsing
+    public long getConstructNanos() {
+        return this.constructNanos;
+    }
+
+    // Time spent adding rows to the table, including the duplicate check and indexes
+    public long getAddNanos() {
+        return this.addNanos;
+    }
+
+    // Time spent formatting and writing rows
+    public long getWriteNanos() {
+        return this.writeNanos;
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos;
+    }
+
+    // The exception that ended the operation early, or null if it completed
+    public Exception getError() {
+        return this.error;
+    }
+
+    public String toString() {
+        return String.format("%s %s: %d rows, %d bytes, %d rejected, %d constructor fallbacks in %d ms "
+                        + "(tokenize %d ms, parse %d ms, construct %d ms, add %d ms, write %d ms)%s",
+                this.operation,
+                this.filePath,
+                this.rows,
+                this.bytes,
+                this.rejected,
+                this.constructorFallbacks,
+                TimeUnit.NANOSECONDS.toMillis(this.totalNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.tokenizeNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.parseNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.constructNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.addNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.writeNanos),
+                this.error == null ? "" : ", failed with " + this.error
+        );
+    }
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Cell parsers chosen once per column from the declared type of its field.
+ * <p>
+ * Parsers read a cell straight out of a char buffer, such as the one exposed by {@link Tokenizer}, so a well formed
+ * cell is parsed exactly once and never throws. A malformed cell throws an {@link IllegalArgumentException}
+ * ({@link NumberFormatException} for numbers), which aborts the load it occurs in.
+ */
+public class Parsers {
+
+    public interface Parser {
+
+        // Parses a cell into a boxed value, used when rows are built through a constructor
+        Object parse(char[] buffer, int start, int end);
+
+        // Parses a cell and stores it in the field of the row without boxing
+        void set(Object row, char[] buffer, int start, int end);
+
+    }
+
+    /**
+     * Returns the parser for a column
+     * @return null if the type of the field is not supported
+     */
+    public static Parser For(Schema.Accessor accessor) {
+        if (accessor.getEnumClass() != null) {
+            return Enum(accessor, accessor.getEnumClass().getEnumConstants());
+        }
+
+        Class<?> type = accessor.getType();
+        if (type == int.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseInt(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setInt(row, ParseInt(buffer, start, end));
+                }
+            };
+        } else if (type == long.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseLong(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setLong(row, ParseLong(buffer, start, end));
+                }
+            };
+        } else if (type == short.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseShort(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setShort(row, ParseShort(buffer, start, end));
+                }
+            };
+        } else if (type == byte.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseByte(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setByte(row, ParseByte(buffer, start, end));
+                }
+            };
+        } else if (type == float.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseFloat(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setFloat(row, ParseFloat(buffer, start, end));
+                }
+            };
+        } else if (type == double.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseDouble(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setDouble(row, ParseDouble(buffer, start, end));
+                }
+            };
+        } else if (type == boolean.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseBoolean(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setBoolean(row, ParseBoolean(buffer, start, end));
+                }
+            };
+        } else if (type == char.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseChar(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.setChar(row, ParseChar(buffer, start, end));
+                }
+            };
+        } else if (type == String.class) {
+            return new Parser() {
+                public Object parse(char[] buffer, int start, int end) {
+                    return ParseString(buffer, start, end);
+                }
+
+                public void set(Object row, char[] buffer, int start, int end) {
+                    accessor.set(row, ParseString(buffer, start, end));
+                }
+            };
+        }
+        return null;
+    }
+
+    // Enum cells hold the ordinal of the constant, which is resolved with a single array lookup
+    private static Parser Enum(Schema.Accessor accessor, Object[] constants) {
+        return new Parser() {
+            public Object parse(char[] buffer, int start, int end) {
+                return ParseEnum(constants, buffer, start, end);
+            }
+
+            public void set(Object row, char[] buffer, int start, int end) {
+                accessor.set(row, this.parse(buffer, start, end));
+            }
+        };
+    }
+
+    public static long ParseLong(char[] buffer, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        int i = start;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+') {
+            i++;
+            if (i == end) {
+                throw Malformed(buffer, start, end);
+            }
+        }
+
+        // Accumulate negatively so Long.MIN_VALUE can be represented
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+                throw Malformed(buffer, start, end);
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public static int ParseInt(char[] buffer, int start, int end) {
+        long value = ParseLong(buffer, start, end);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw Malformed(buffer, start, end);
+        }
+        return (int) value;
+    }
+
+    public static short ParseShort(char[] buffer, int start, int end) {
+        long value = ParseLong(buffer, start, end);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw Malformed(buffer, start, end);
+        }
+        return (short) value;
+    }
+
+    public static byte ParseByte(char[] buffer, int start, int end) {
+        long value = ParseLong(buffer, start, end);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw Malformed(buffer, start, end);
+        }
+        return (byte) value;
+    }
+
+    public static float ParseFloat(char[] buffer, int start, int end) {
+        return Float.parseFloat(new String(buffer, start, end - start));
+    }
+
+    public static double ParseDouble(char[] buffer, int start, int end) {
+        return Double.parseDouble(new String(buffer, start, end - start));
+    }
+
+    public static String ParseString(char[] buffer, int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    public static <E> E ParseEnum(E[] constants, char[] buffer, int start, int end) {
+        int ordinal = ParseInt(buffer, start, end);
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new IllegalArgumentException("No enum constant with ordinal " + ordinal);
+        }
+        return constants[ordinal];
+    }
+
+    public static boolean ParseBoolean(char[] buffer, int start, int end) {
+        if (RegionEqualsIgnoreCase(buffer, start, end, "true")) {
+            return true;
+        } else if (RegionEqualsIgnoreCase(buffer, start, end, "false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Not a boolean: " + new String(buffer, start, end - start));
+    }
+
+    public static char ParseChar(char[] buffer, int start, int end) {
+        if (end - start != 1) {
+            throw new IllegalArgumentException("Not a single character: " + new String(buffer, start, end - start));
+        }
+        return buffer[start];
+    }
+
+    private static boolean RegionEqualsIgnoreCase(char[] buffer, int start, int end, String str) {
+        if (end - start != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (Character.toLowerCase(buffer[start + i]) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NumberFormatException Malformed(char[] buffer, int start, int end) {
+        return new NumberFormatException("For input string: \"" + new String(buffer, start, end - start) + "\"");
+    }
+
+}
@@ -0,0 +1,89 @@
+import java.util.HashMap;
+
+/**
+ * Read only view of the current record of a CSV file, passed to a {@link Table.RecordFilter} before the record is
+ * turned into a row. Cells are looked up by the column names of the header and only converted when asked for, straight
+ * out of the tokenizer's buffer.
+ * <p>
+ * A record is reused for every line of the file, so it must not be kept once the filter returns.
+ */
+public class Record {
+
+    private final Tokenizer tokenizer;
+    private final HashMap<String, Integer> positions = new HashMap<>();
+
+    Record(Tokenizer tokenizer, String[] header) {
+        this.tokenizer = tokenizer;
+        for (int i = 0; i < header.length; i++) {
+            this.positions.putIfAbsent(header[i], i);
+        }
+    }
+
+    public int getLineNumber() {
+        return this.tokenizer.getLineNumber();
+    }
+
+    public boolean hasColumn(String column) {
+        return this.positions.containsKey(column);
+    }
+
+    public String get(String column) {
+        return this.tokenizer.getCell(this.position(column));
+    }
+
+    public boolean isEmpty(String column) {
+        int i = this.position(column);
+        return this.tokenizer.getStart(i) == this.tokenizer.getEnd(i);
+    }
+
+    public int getInt(String column) {
+        int i = this.position(column);
+        return Parsers.ParseInt(this.tokenizer.getBuffer(), this.tokenizer.getStart(i), this.tokenizer.getEnd(i));
+    }
+
+    public long getLong(String column) {
+        int i = this.position(column);
+        return Parsers.ParseLong(this.tokenizer.getBuffer(), this.tokenizer.getStart(i), this.tokenizer.getEnd(i));
+    }
+
+    public float getFloat(String column) {
+        int i = this.position(column);
+        return Parsers.ParseFloat(this.tokenizer.getBuffer(), this.tokenizer.getStart(i), this.tokenizer.getEnd(i));
+    }
+
+    public double getDouble(String column) {
+        int i = this.position(column);
+        return Parsers.ParseDouble(this.tokenizer.getBuffer(), this.tokenizer.getStart(i), this.tokenizer.getEnd(i));
+    }
+
+    public boolean getBoolean(String column) {
+        int i = this.position(column);
+        return Parsers.ParseBoolean(this.tokenizer.getBuffer(), this.tokenizer.getStart(i), this.tokenizer.getEnd(i));
+    }
+
+    // Whether a cell equals a string, compared without creating a String for the cell
+    public boolean matches(String column, String value) {
+        int i = this.position(column);
+        int start = this.tokenizer.getStart(i);
+        int length = this.tokenizer.getEnd(i) - start;
+        if (length != value.length()) {
+            return false;
+        }
+        char[] buffer = this.tokenizer.getBuffer();
+        for (int j = 0; j < length; j++) {
+            if (buffer[start + j] != value.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int position(String column) {
+        Integer i = this.positions.get(column);
+        if (i == null) {
+            throw new IllegalArgumentException(String.format("Column %s is not in the header", column));
+        }
+        return i;
+    }
+
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes rows as CSV records to a {@link Writer}, one row at a time.
+ * <p>
+ * Integral columns are formatted into a reused char buffer and written without creating a String. Cells are quoted
+ * following RFC 4180 when they contain a comma, a quote, a line break or leading or trailing whitespace, so that
+ * {@link Tokenizer} reads back exactly the value that was written. Enum columns are written as their ordinal and null
+ * values as an empty cell.
+ * <p>
+ * Records are separated by a line break, with none after the last one, matching {@link Table#toString()}.
+ */
+public class RowWriter<T extends Table.Row> {
+
+    private final Writer out;
+    private final Schema schema;
+    // Generated codec of the Row class, or null to write cells through the schema
+    private final Codec<T> codec;
+    private final char[] scratch = new char[20];
+    private boolean first = true;
+
+    public RowWriter(Writer out, Class<T> rowclass) {
+        this.out = out;
+        this.schema = Schema.Of(rowclass);
+        this.codec = Codec.For(rowclass);
+    }
+
+    public void writeHeader() throws IOException {
+        this.startRecord();
+        List<String> columnNames = this.schema.getColumnNames();
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                this.out.write(',');
+            }
+            this.writeString(columnNames.get(i));
+        }
+    }
+
+    public void writeRow(T row) throws IOException {
+        this.startRecord();
+        if (this.codec != null) {
+            this.codec.write(row, this);
+            return;
+        }
+        for (int i = 0; i < this.schema.getNumColumns(); i++) {
+            if (i > 0) {
+                this.writeSeparator();
+            }
+            this.writeCell(this.schema.getColumn(i), row);
+        }
+    }
+
+    private void startRecord() throws IOException {
+        if (!this.first) {
+            this.out.write('\n');
+        }
+        this.first = false;
+    }
+
+    private void writeCell(Schema.Accessor accessor, T row) throws IOException {
+        Class<?> type = accessor.getType();
+        if (accessor.getEnumClass() != null) {
+            this.writeEnum(accessor.get(row));
+        } else if (type == int.class) {
+            this.writeLong(accessor.getInt(row));
+        } else if (type == long.class) {
+            this.writeLong(accessor.getLong(row));
+        } else if (type == short.class) {
+            this.writeLong(accessor.getShort(row));
+        } else if (type == byte.class) {
+            this.writeLong(accessor.getByte(row));
+        } else if (type == float.class) {
+            this.writeFloat(accessor.getFloat(row));
+        } else if (type == double.class) {
+            this.writeDouble(accessor.getDouble(row));
+        } else if (type == boolean.class) {
+            this.writeBoolean(accessor.getBoolean(row));
+        } else if (type == char.class) {
+            this.writeChar(accessor.getChar(row));
+        } else {
+            this.writeValue(accessor.get(row));
+        }
+    }
+
+    // The cell writers below are also called by generated codecs, see CodecProcessor
+
+    void writeSeparator() throws IOException {
+        this.out.write(',');
+    }
+
+    void writeFloat(float value) throws IOException {
+        this.out.write(Float.toString(value));
+    }
+
+    void writeDouble(double value) throws IOException {
+        this.out.write(Double.toString(value));
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        this.out.write(value ? "true" : "false");
+    }
+
+    void writeEnum(Object value) throws IOException {
+        if (value != null) {
+            this.writeLong(((java.lang.Enum<?>) value).ordinal());
+        }
+    }
+
+    void writeValue(Object value) throws IOException {
+        if (value != null) {
+            this.writeString(value.toString());
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            this.out.write(Long.toString(value));
+            return;
+        }
+
+        int position = this.scratch.length;
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        do {
+            this.scratch[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            this.scratch[--position] = '-';
+        }
+        this.out.write(this.scratch, position, this.scratch.length - position);
+    }
+
+    void writeChar(char c) throws IOException {
+        // A lone whitespace character would be trimmed away by the tokenizer unless quoted
+        if (NeedsQuotes(c) || c <= ' ') {
+            this.writeString(String.valueOf(c));
+        } else {
+            this.out.write(c);
+        }
+    }
+
+    private void writeString(String str) throws IOException {
+        boolean quote = !str.isEmpty() && (str.charAt(0) <= ' ' || str.charAt(str.length() - 1) <= ' ');
+        for (int i = 0; !quote && i < str.length(); i++) {
+            quote = NeedsQuotes(str.charAt(i));
+        }
+        if (!quote) {
+            this.out.write(str);
+            return;
+        }
+
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) == '"') {
+                this.out.write(str, start, i + 1 - start);
+                this.out.write('"');
+                start = i + 1;
+            }
+        }
+        this.out.write(str, start, str.length() - start);
+        this.out.write('"');
+    }
+
+    private static boolean NeedsQuotes(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+
+}
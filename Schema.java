@@ -0,0 +1,451 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reflection results for a Row class, computed once per class and shared by {@link Table}, {@link Sort} and
+ * {@link Table.Row}.
+ * <p>
+ * Fields and constructors are exposed through method handles resolved up front, so reading or writing a column costs
+ * about as much as a direct field access instead of a reflective lookup. Primitive columns can be read and written
+ * through the typed getters and setters of {@link Accessor} without boxing.
+ */
+public class Schema {
+
+    private static final ClassValue<Schema> CACHE = new ClassValue<>() {
+        @Override
+        protected Schema computeValue(Class<?> rowclass) {
+            return new Schema(rowclass);
+        }
+    };
+
+    public static Schema Of(Class<?> rowclass) {
+        return CACHE.get(rowclass);
+    }
+
+    public static class Accessor {
+
+        private final Class<?> rowclass;
+        private final Field field;
+        private final Class<?> type;
+        private final Class<?> enumClass;
+
+        // (Object)Object and (Object,Object)void, boxing primitives
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        // (Object)type and (Object,type)void, for the typed accessors of primitive fields
+        private final MethodHandle typedGetter;
+        private final MethodHandle typedSetter;
+
+        private final Parsers.Parser parser;
+
+        private Accessor(Class<?> rowclass, Field field, Class<?> enumClass) throws IllegalAccessException {
+            this.rowclass = rowclass;
+            this.field = field;
+            this.type = field.getType();
+            this.enumClass = enumClass;
+
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+            this.typedGetter = getter.asType(MethodType.methodType(this.type, Object.class));
+            this.typedSetter = setter.asType(MethodType.methodType(void.class, Object.class, this.type));
+            this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+            this.parser = Parsers.For(this);
+        }
+
+        public Class<?> getRowClass() {
+            return this.rowclass;
+        }
+
+        public Field getField() {
+            return this.field;
+        }
+
+        public Class<?> getType() {
+            return this.type;
+        }
+
+        // The class given to Table.Enum on this field, or null if it has none
+        public Class<?> getEnumClass() {
+            return this.enumClass;
+        }
+
+        // Null if the type of the field cannot be parsed from a cell
+        public Parsers.Parser getParser() {
+            return this.parser;
+        }
+
+        public Object get(Object row) {
+            try {
+                return (Object) this.getter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void set(Object row, Object value) {
+            try {
+                this.setter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public int getInt(Object row) {
+            try {
+                return (int) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setInt(Object row, int value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public long getLong(Object row) {
+            try {
+                return (long) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setLong(Object row, long value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public short getShort(Object row) {
+            try {
+                return (short) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setShort(Object row, short value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public byte getByte(Object row) {
+            try {
+                return (byte) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setByte(Object row, byte value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public float getFloat(Object row) {
+            try {
+                return (float) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setFloat(Object row, float value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public double getDouble(Object row) {
+            try {
+                return (double) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setDouble(Object row, double value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public boolean getBoolean(Object row) {
+            try {
+                return (boolean) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setBoolean(Object row, boolean value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public char getChar(Object row) {
+            try {
+                return (char) this.typedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        public void setChar(Object row, char value) {
+            try {
+                this.typedSetter.invokeExact(row, value);
+            } catch (Throwable t) {
+                throw Rethrow(t);
+            }
+        }
+
+        /**
+         * Compares the values of this field on two rows, without boxing primitives
+         * @return 0 if either value is null or the values are not Comparable
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public int compare(Object a, Object b) {
+            if (this.type == int.class) {
+                return Integer.compare(this.getInt(a), this.getInt(b));
+            } else if (this.type == long.class) {
+                return Long.compare(this.getLong(a), this.getLong(b));
+            } else if (this.type == float.class) {
+                return Float.compare(this.getFloat(a), this.getFloat(b));
+            } else if (this.type == double.class) {
+                return Double.compare(this.getDouble(a), this.getDouble(b));
+            } else if (this.type == short.class) {
+                return Short.compare(this.getShort(a), this.getShort(b));
+            } else if (this.type == byte.class) {
+                return Byte.compare(this.getByte(a), this.getByte(b));
+            } else if (this.type == char.class) {
+                return Character.compare(this.getChar(a), this.getChar(b));
+            } else if (this.type == boolean.class) {
+                return Boolean.compare(this.getBoolean(a), this.getBoolean(b));
+            }
+
+            Object aVal = this.get(a);
+            Object bVal = this.get(b);
+            if (aVal instanceof Comparable && bVal != null) {
+                return ((Comparable) aVal).compareTo(bVal);
+            }
+            return 0;
+        }
+
+    }
+
+    private final Class<?> rowclass;
+
+    private final ArrayList<String> columnNames = new ArrayList<>();
+    private final ArrayList<Accessor> columns = new ArrayList<>();
+    private final HashMap<String, Accessor> columnsByName = new HashMap<>();
+    // Accessors for any declared field, looked up by its exact name. Filled in lazily
+    private final ConcurrentHashMap<String, Accessor> fields = new ConcurrentHashMap<>();
+
+    // Whether the Row class overrides both equals and hashCode, and can be hashed as is
+    private final boolean hashable;
+
+    // ()Object and (Object[])Object. The latter takes every column in declaration order and may be null
+    private final MethodHandle defaultConstructor;
+    private final MethodHandle constructor;
+
+    private Schema(Class<?> rowclass) {
+        this.rowclass = rowclass;
+        try {
+            for (Field field : rowclass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Table.Column.class)) {
+                    Table.Enum annotation = field.getAnnotation(Table.Enum.class);
+                    Accessor accessor = new Accessor(rowclass, field, annotation == null ? null : annotation.enumClass());
+                    String fname = field.getName().toLowerCase();
+                    this.columnNames.add(fname);
+                    this.columns.add(accessor);
+                    this.columnsByName.put(fname, accessor);
+                    this.fields.put(field.getName(), accessor);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        Class<?>[] types = new Class<?>[this.columns.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = this.columns.get(i).getType();
+        }
+        this.hashable = Overrides(rowclass, "equals", Object.class) && Overrides(rowclass, "hashCode");
+        this.defaultConstructor = FindConstructor(rowclass);
+        MethodHandle constructor = FindConstructor(rowclass, types);
+        this.constructor = constructor == null ? null : constructor.asSpreader(Object[].class, types.length);
+    }
+
+    private static boolean Overrides(Class<?> rowclass, String name, Class<?>... types) {
+        try {
+            return rowclass.getMethod(name, types).getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle FindConstructor(Class<?> rowclass, Class<?>... types) {
+        try {
+            Constructor<?> constructor = rowclass.getDeclaredConstructor(types);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class, types));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public Class<?> getRowClass() {
+        return this.rowclass;
+    }
+
+    // Lowercased names of the columns in declaration order
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(this.columnNames);
+    }
+
+    public int getNumColumns() {
+        return this.columns.size();
+    }
+
+    public Accessor getColumn(int index) {
+        return this.columns.get(index);
+    }
+
+    // Null if there is no column with the given lowercased name
+    public Accessor getColumn(String name) {
+        return this.columnsByName.get(name);
+    }
+
+    /**
+     * Returns the accessor of any field declared on the Row class, annotated or not
+     * @return null if the class declares no field with that exact name
+     */
+    public Accessor getField(String name) {
+        Accessor accessor = this.fields.get(name);
+        if (accessor == null) {
+            try {
+                Field field = this.rowclass.getDeclaredField(name);
+                Table.Enum annotation = field.getAnnotation(Table.Enum.class);
+                accessor = new Accessor(this.rowclass, field, annotation == null ? null : annotation.enumClass());
+                this.fields.putIfAbsent(name, accessor);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                return null;
+            }
+        }
+        return accessor;
+    }
+
+    /**
+     * Returns a key that identifies a row for duplicate detection.
+     * That is the row itself if its class overrides equals and hashCode, otherwise a key built from the values of its columns
+     */
+    public Object key(Object row) {
+        if (this.hashable) {
+            return row;
+        }
+        Object[] values = new Object[this.columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.columns.get(i).get(row);
+        }
+        return new Key(values);
+    }
+
+    private static class Key {
+
+        private final Object[] values;
+        private final int hash;
+
+        private Key(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(this.values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+    // Whether the Row class declares a constructor taking every column in declaration order
+    public boolean hasConstructor() {
+        return this.constructor != null;
+    }
+
+    public boolean hasDefaultConstructor() {
+        return this.defaultConstructor != null;
+    }
+
+    public Object newInstance() throws ReflectiveOperationException {
+        if (this.defaultConstructor == null) {
+            throw new NoSuchMethodException(this.rowclass.getName() + " does not declare a default constructor");
+        }
+        try {
+            return (Object) this.defaultConstructor.invokeExact();
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    // Invokes the constructor taking every column with args in declaration order
+    public Object newInstance(Object[] args) throws ReflectiveOperationException {
+        if (this.constructor == null) {
+            throw new NoSuchMethodException(this.rowclass.getName() + " does not declare a constructor taking every column");
+        }
+        try {
+            return (Object) this.constructor.invokeExact(args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static RuntimeException Rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+}
@@ -0,0 +1,282 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary, columnar snapshot of a {@link ColumnStore}, written next to the CSV file it was loaded from.
+ * <p>
+ * The snapshot records the size and modification time of the CSV file and the columns of the Row class, and is only
+ * read back while all of those still match. Columns are stored one after another as raw big endian arrays, with
+ * String columns dictionary encoded, so a snapshot loads with a few bulk reads and no text parsing.
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x43535653;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    // Path of the snapshot belonging to a CSV file
+    public static Path For(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".snapshot");
+    }
+
+    /**
+     * Writes a store to a snapshot file, replacing it atomically
+     * @throws IOException if a column holds a type that cannot be stored, in which case nothing is written
+     */
+    public static void Write(ColumnStore<?> store, Path snapshot, long csvSize, long csvModified) throws IOException {
+        Schema schema = Schema.Of(store.getRowClass());
+        for (int i = 0; i < schema.getNumColumns(); i++) {
+            Schema.Accessor accessor = schema.getColumn(i);
+            if (accessor.getEnumClass() == null && !accessor.getType().isPrimitive() && accessor.getType() != String.class) {
+                throw new IOException("Column " + schema.getColumnNames().get(i) + " cannot be stored in a snapshot");
+            }
+        }
+
+        Path temp = AtomicFile.CreateTemp(snapshot);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BLOCK_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(csvSize);
+                out.writeLong(csvModified);
+                WriteSignature(out, schema);
+                out.writeInt(store.size());
+
+                byte[] block = new byte[BLOCK_SIZE];
+                for (int i = 0; i < schema.getNumColumns(); i++) {
+                    Schema.Accessor accessor = schema.getColumn(i);
+                    if (accessor.getEnumClass() == null && accessor.getType() == String.class) {
+                        List<Object> dictionary = store.getDictionary(i);
+                        out.writeInt(dictionary.size());
+                        for (Object value : dictionary) {
+                            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                            out.writeInt(bytes.length);
+                            out.write(bytes);
+                        }
+                    }
+                    WriteArray(out, store.getArray(i), block);
+                }
+            }
+            AtomicFile.Commit(temp, snapshot);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot back into a store
+     * @return null if there is no snapshot, or it was taken of another version of the CSV file or another Row class
+     */
+    public static <T extends Table.Row> ColumnStore<T> Read(Path snapshot, Class<T> rowclass, long csvSize, long csvModified) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+
+        Schema schema = Schema.Of(rowclass);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), BLOCK_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != csvSize || in.readLong() != csvModified) {
+                return null;
+            }
+            if (!ReadSignature(in, schema)) {
+                return null;
+            }
+
+            int size = in.readInt();
+            Object[] data = new Object[schema.getNumColumns()];
+            List<List<Object>> dictionaries = new ArrayList<>();
+            byte[] block = new byte[BLOCK_SIZE];
+            for (int i = 0; i < data.length; i++) {
+                Schema.Accessor accessor = schema.getColumn(i);
+                Class<?> type = accessor.getEnumClass() != null ? int.class : accessor.getType();
+                if (type == String.class) {
+                    int dictionarySize = in.readInt();
+                    ArrayList<Object> dictionary = new ArrayList<>(dictionarySize);
+                    for (int j = 0; j < dictionarySize; j++) {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    dictionaries.add(dictionary);
+                    type = int.class;
+                } else {
+                    dictionaries.add(null);
+                }
+                data[i] = ReadArray(in, type, size, block);
+            }
+            return new ColumnStore<>(rowclass, 0).restore(data, dictionaries, size);
+        }
+    }
+
+    private static void WriteSignature(DataOutputStream out, Schema schema) throws IOException {
+        out.writeInt(schema.getNumColumns());
+        for (int i = 0; i < schema.getNumColumns(); i++) {
+            Schema.Accessor accessor = schema.getColumn(i);
+            out.writeUTF(schema.getColumnNames().get(i));
+            out.writeUTF(accessor.getType().getName());
+            out.writeUTF(accessor.getEnumClass() == null ? "" : accessor.getEnumClass().getName());
+        }
+    }
+
+    private static boolean ReadSignature(DataInputStream in, Schema schema) throws IOException {
+        if (in.readInt() != schema.getNumColumns()) {
+            return false;
+        }
+        for (int i = 0; i < schema.getNumColumns(); i++) {
+            Schema.Accessor accessor = schema.getColumn(i);
+            String enumClass = accessor.getEnumClass() == null ? "" : accessor.getEnumClass().getName();
+            if (!in.readUTF().equals(schema.getColumnNames().get(i))
+                    | !in.readUTF().equals(accessor.getType().getName())
+                    | !in.readUTF().equals(enumClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes an array in blocks through a byte buffer view, instead of one write call per element
+    private static void WriteArray(DataOutputStream out, Object array, byte[] block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        if (array instanceof byte[]) {
+            out.write((byte[]) array);
+        } else if (array instanceof boolean[]) {
+            boolean[] values = (boolean[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length) {
+                int length = Math.min(block.length, values.length - offset);
+                for (int i = 0; i < length; i++) {
+                    block[i] = (byte) (values[offset + i] ? 1 : 0);
+                }
+                out.write(block, 0, length);
+            }
+        } else if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 4) {
+                int length = Math.min(block.length / 4, values.length - offset);
+                buffer.clear();
+                buffer.asIntBuffer().put(values, offset, length);
+                out.write(block, 0, length * 4);
+            }
+        } else if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 8) {
+                int length = Math.min(block.length / 8, values.length - offset);
+                buffer.clear();
+                buffer.asLongBuffer().put(values, offset, length);
+                out.write(block, 0, length * 8);
+            }
+        } else if (array instanceof short[]) {
+            short[] values = (short[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 2) {
+                int length = Math.min(block.length / 2, values.length - offset);
+                buffer.clear();
+                buffer.asShortBuffer().put(values, offset, length);
+                out.write(block, 0, length * 2);
+            }
+        } else if (array instanceof char[]) {
+            char[] values = (char[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 2) {
+                int length = Math.min(block.length / 2, values.length - offset);
+                buffer.clear();
+                buffer.asCharBuffer().put(values, offset, length);
+                out.write(block, 0, length * 2);
+            }
+        } else if (array instanceof float[]) {
+            float[] values = (float[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 4) {
+                int length = Math.min(block.length / 4, values.length - offset);
+                buffer.clear();
+                buffer.asFloatBuffer().put(values, offset, length);
+                out.write(block, 0, length * 4);
+            }
+        } else {
+            double[] values = (double[]) array;
+            for (int offset = 0; offset < values.length; offset += block.length / 8) {
+                int length = Math.min(block.length / 8, values.length - offset);
+                buffer.clear();
+                buffer.asDoubleBuffer().put(values, offset, length);
+                out.write(block, 0, length * 8);
+            }
+        }
+    }
+
+    private static Object ReadArray(DataInputStream in, Class<?> type, int size, byte[] block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        if (type == byte.class) {
+            byte[] values = new byte[size];
+            in.readFully(values);
+            return values;
+        } else if (type == boolean.class) {
+            boolean[] values = new boolean[size];
+            for (int offset = 0; offset < size; offset += block.length) {
+                int length = Math.min(block.length, size - offset);
+                in.readFully(block, 0, length);
+                for (int i = 0; i < length; i++) {
+                    values[offset + i] = block[i] != 0;
+                }
+            }
+            return values;
+        } else if (type == int.class) {
+            int[] values = new int[size];
+            for (int offset = 0; offset < size; offset += block.length / 4) {
+                int length = Math.min(block.length / 4, size - offset);
+                in.readFully(block, 0, length * 4);
+                buffer.clear();
+                buffer.asIntBuffer().get(values, offset, length);
+            }
+            return values;
+        } else if (type == long.class) {
+            long[] values = new long[size];
+            for (int offset = 0; offset < size; offset += block.length / 8) {
+                int length = Math.min(block.length / 8, size - offset);
+                in.readFully(block, 0, length * 8);
+                buffer.clear();
+                buffer.asLongBuffer().get(values, offset, length);
+            }
+            return values;
+        } else if (type == short.class) {
+            short[] values = new short[size];
+            for (int offset = 0; offset < size; offset += block.length / 2) {
+                int length = Math.min(block.length / 2, size - offset);
+                in.readFully(block, 0, length * 2);
+                buffer.clear();
+                buffer.asShortBuffer().get(values, offset, length);
+            }
+            return values;
+        } else if (type == char.class) {
+            char[] values = new char[size];
+            for (int offset = 0; offset < size; offset += block.length / 2) {
+                int length = Math.min(block.length / 2, size - offset);
+                in.readFully(block, 0, length * 2);
+                buffer.clear();
+                buffer.asCharBuffer().get(values, offset, length);
+            }
+            return values;
+        } else if (type == float.class) {
+            float[] values = new float[size];
+            for (int offset = 0; offset < size; offset += block.length / 4) {
+                int length = Math.min(block.length / 4, size - offset);
+                in.readFully(block, 0, length * 4);
+                buffer.clear();
+                buffer.asFloatBuffer().get(values, offset, length);
+            }
+            return values;
+        }
+        double[] values = new double[size];
+        for (int offset = 0; offset < size; offset += block.length / 8) {
+            int length = Math.min(block.length / 8, size - offset);
+            in.readFully(block, 0, length * 8);
+            buffer.clear();
+            buffer.asDoubleBuffer().get(values, offset, length);
+        }
+        return values;
+    }
+
+}
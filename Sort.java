@@ -1,4 +1,4 @@
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 
 public class Sort {
 
@@ -7,37 +7,133 @@ public class Sort {
         int sort(T a, T b);
     }
 
-    public static <T extends Table.Row> Sorter<T> Ascending(String column) {
-        return (a, b) -> {
-            try {
-                Field field = a.getClass().getDeclaredField(column);
-                field.setAccessible(true);
-                Object aVal = field.get(a);
-                Object bVal = field.get(b);
-                if (aVal instanceof Comparable) {
-                    return ((Comparable) aVal).compareTo(bVal);
+    public static <T extends Table.Row> Spec<T> Ascending(String column) {
+        return new Spec<T>().then(column, false);
+    }
+
+    public static <T extends Table.Row> Spec<T> Descending(String column) {
+        return new Spec<T>().then(column, true);
+    }
+
+    /**
+     * Starts a sort on one or more columns, for example {@code Sort.By("dept").thenDescending("salary")}.
+     * The first column is sorted in ascending order
+     */
+    public static <T extends Table.Row> Spec<T> By(String column) {
+        return Ascending(column);
+    }
+
+    /**
+     * Sorter on one or more columns, each compared only when all the columns before it are equal.
+     * Primitive columns are compared without boxing. Null values sort last unless {@link #nullsFirst()} is called
+     * after the column is added.
+     * <p>
+     * Columns are looked up by field name on the class of the rows being sorted, the first time they are compared.
+     * Comparing rows without one of the fields, or whose field is neither primitive nor Comparable, throws an
+     * IllegalArgumentException
+     */
+    public static class Spec<T extends Table.Row> implements Sorter<T> {
+
+        private final ArrayList<Key> keys = new ArrayList<>();
+
+        private Spec() {}
+
+        public Spec<T> thenAscending(String column) {
+            return this.then(column, false);
+        }
+
+        public Spec<T> thenDescending(String column) {
+            return this.then(column, true);
+        }
+
+        // Sorts null values of the last column added before all other values
+        public Spec<T> nullsFirst() {
+            this.keys.get(this.keys.size() - 1).nullsFirst = true;
+            return this;
+        }
+
+        public Spec<T> nullsLast() {
+            this.keys.get(this.keys.size() - 1).nullsFirst = false;
+            return this;
+        }
+
+        private Spec<T> then(String column, boolean descending) {
+            this.keys.add(new Key(column, descending));
+            return this;
+        }
+
+        @Override
+        public int sort(T a, T b) {
+            for (int i = 0; i < this.keys.size(); i++) {
+                int result = this.keys.get(i).compare(a, b);
+                if (result != 0) {
+                    return result;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
             return 0;
-        };
+        }
+
     }
 
-    public static <T extends Table.Row> Sorter<T> Descending(String column) {
-        return (a, b) -> {
-            try {
-                Field field = a.getClass().getDeclaredField(column);
-                field.setAccessible(true);
-                Object aVal = field.get(a);
-                Object bVal = field.get(b);
-                if (aVal instanceof Comparable) {
-                    return ((Comparable) bVal).compareTo(aVal);
+    // One column of a Spec. The accessor is resolved on the first comparison and only looked up again if rows of
+    // another class are compared
+    private static class Key {
+
+        private final String column;
+        private final boolean descending;
+        private boolean nullsFirst = false;
+        private Schema.Accessor accessor;
+
+        private Key(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        private int compare(Object a, Object b) {
+            Schema.Accessor accessor = this.accessor;
+            if (accessor == null || accessor.getRowClass() != a.getClass()) {
+                accessor = this.resolve(a.getClass());
+            }
+
+            if (accessor.getType().isPrimitive()) {
+                return this.descending ? accessor.compare(b, a) : accessor.compare(a, b);
+            }
+
+            Object aVal = accessor.get(a);
+            Object bVal = accessor.get(b);
+            if (aVal == null || bVal == null) {
+                if (aVal == bVal) {
+                    return 0;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                // Nulls keep their place regardless of the direction of the column
+                return (aVal == null) == this.nullsFirst ? -1 : 1;
             }
-            return 0;
-        };
+            @SuppressWarnings("unchecked")
+            int result = ((Comparable<Object>) aVal).compareTo(bVal);
+            return this.descending ? -result : result;
+        }
+
+        private Schema.Accessor resolve(Class<?> rowclass) {
+            Schema.Accessor accessor = Schema.Of(rowclass).getField(this.column);
+            if (accessor == null) {
+                throw new IllegalArgumentException(
+                        String.format("Cannot sort on %s, which does not exist on %s",
+                                this.column,
+                                rowclass.getName()
+                        )
+                );
+            }
+            if (!accessor.getType().isPrimitive() && !Comparable.class.isAssignableFrom(accessor.getType())) {
+                throw new IllegalArgumentException(
+                        String.format("Cannot sort on %s, type %s is not Comparable",
+                                this.column,
+                                accessor.getType().getName()
+                        )
+                );
+            }
+            this.accessor = accessor;
+            return accessor;
+        }
+
     }
 }
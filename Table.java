@@ -1,13 +1,30 @@
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
-import java.lang.reflect.Field;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Table<T extends Table.Row> {
 
@@ -23,21 +40,6 @@ public class Table<T extends Table.Row> {
                 (primitive.getName().equals("java.lang.String") && wrapper.getName().equals("java.lang.String"));
     }
 
-    private static Class<?> WrapperToPrimitive(Class<?> wrapper) {
-        return switch (wrapper.getName()) {
-            case "java.lang.Integer" -> int.class;
-            case "java.lang.Float" -> float.class;
-            case "java.lang.Double" -> double.class;
-            case "java.lang.Boolean" -> boolean.class;
-            case "java.lang.Character" -> char.class;
-            case "java.lang.Byte" -> byte.class;
-            case "java.lang.Short" -> short.class;
-            case "java.lang.Long" -> long.class;
-            case "java.lang.String" -> String.class;
-            default -> null;
-        };
-    }
-
     private static Class<?> ParseTypeFromString(String str) {
         try {
             Integer.parseInt(str);
@@ -56,24 +58,6 @@ public class Table<T extends Table.Row> {
         }
     }
 
-    private static Object ParseValueFromString(String str) {
-        try {
-            return Integer.parseInt(str);
-        } catch (Exception e) {
-            try {
-                return Float.parseFloat(str);
-            } catch (Exception e2) {
-                if (str.equalsIgnoreCase("true")) {
-                    return true;
-                } else if (str.equalsIgnoreCase("false")) {
-                    return false;
-                } else {
-                    return str;
-                }
-            }
-        }
-    }
-
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.FIELD)
     public @interface Column {}
@@ -93,38 +77,34 @@ public class Table<T extends Table.Row> {
         public Row() {}
 
         public <T> ArrayList<T> mapColumns(Mapper<T> mapper) {
-            ArrayList<T> list = new ArrayList<>();
-            for (Field field : this.getClass().getDeclaredFields()) {
-                if (field.isAnnotationPresent(Column.class)) {
-                    try {
-                        list.add(mapper.map(field.get(this)));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
+            Schema schema = Schema.Of(this.getClass());
+            ArrayList<T> list = new ArrayList<>(schema.getNumColumns());
+            for (int i = 0; i < schema.getNumColumns(); i++) {
+                list.add(mapper.map(schema.getColumn(i).get(this)));
             }
             return list;
         }
 
         public void forEachColumn(Consumer<Object> consumer) {
-            for (Field field : this.getClass().getDeclaredFields()) {
-                if (field.isAnnotationPresent(Column.class)) {
-                    try {
-                        consumer.accept(field.get(this));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
+            Schema schema = Schema.Of(this.getClass());
+            for (int i = 0; i < schema.getNumColumns(); i++) {
+                consumer.accept(schema.getColumn(i).get(this));
             }
         }
 
     }
 
-    private final HashMap<String, Field> columns = new HashMap<>();
-    private final HashMap<String, Class<?>> enumResolvers = new HashMap<>();
+    // Accessors, parsers and constructors of the Row class, shared with every other Table of the same class
+    private Schema schema;
+    // Generated codec of the Row class, or null to parse and create rows through the schema
+    private Codec<T> codec;
 
-    private final ArrayList<String> columnNames = new ArrayList<>();
+    private List<String> columnNames;
     private final ArrayList<T> rows = new ArrayList<>();
+    // Keys of every row, see Schema.key. Only maintained when duplicates are not allowed
+    private final HashSet<Object> keys = new HashSet<>();
+    // Secondary indexes by column name
+    private final HashMap<String, Index<T>> indexes = new HashMap<>();
 
     private final Class<T> rowclass;
 
@@ -134,6 +114,12 @@ public class Table<T extends Table.Row> {
     private String filePath;
 
     private boolean allowDuplicates;
+    // Set on the snapshots of a ConcurrentTable, which are shared with readers
+    private boolean readOnly;
+
+    private Listener listener;
+    // Metrics of the loadCSV in progress, if any
+    private Metrics metrics;
 
     public Table(Class<T> rowclass) {
         this.rowclass = rowclass;
@@ -151,6 +137,7 @@ public class Table<T extends Table.Row> {
     }
 
     public void loadCSV(String filePath) {
+        this.checkWritable();
         if (this.filePath == null) {
             this.filePath = filePath;
         }
@@ -164,126 +151,154 @@ public class Table<T extends Table.Row> {
             }
         }
 
-        int lineNumber = 1;
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String[] parts = scanner.nextLine().split(",");
-                // Get rid of any leading or trailing whitespace and make everything lowercase
-                for (int i = 0; i < parts.length; i++) {
-                    parts[i] = parts[i].trim();
-                }
+        Events.Load event = new Events.Load();
+        Metrics metrics = this.startLoad(event, filePath, true);
+        int initialRows = this.numRows;
+        int lineNumber = 0;
 
-                if (lineNumber == 1) {
-                    // Inside here we validate that the first line contains the correct column names,
-                    // and they match the Row class we were given
-                    for (String str : parts) {
-                        if (!this.columnNames.contains(str)) {
-                            throw new Exceptions.InvalidColumn(
-                                    String.format("Column %s does not exist on %s",
-                                            str,
-                                            this.rowclass.getName()
-                                    )
-                            );
+        try (Tokenizer tokenizer = new Tokenizer(new FileReader(file))) {
+            long time = metrics.timed ? System.nanoTime() : 0;
+            if (tokenizer.nextRecord()) {
+                // The tokenizer already strips leading and trailing whitespace from every cell
+                this.validateHeader(tokenizer.getCells(), filePath);
+                while (tokenizer.nextRecord()) {
+                    lineNumber = tokenizer.getLineNumber();
+                    if (!metrics.timed) {
+                        if (!this.addRow(this.parseRecord(tokenizer))) {
+                            throw this.rowNotGenerated(lineNumber);
                         }
+                        continue;
                     }
 
-                    // If there was a column declared on our Row class that wasn't in the CSV file,
-                    // we throw an exception
-                    for (String str : this.columnNames) {
-                        if (!Arrays.asList(parts).contains(str)) {
-                            throw new Exceptions.InvalidColumn(
-                                    String.format("Column %s exists on '%s' but was not found in %s",
-                                            this.columns.get(str).getName(),
-                                            this.rowclass.getName(),
-                                            filePath
-                                    )
-                            );
-                        }
+                    long now = System.nanoTime();
+                    metrics.tokenizeNanos += now - time;
+                    time = now;
+                    long constructNanos = metrics.constructNanos;
+                    T row = this.parseRecord(tokenizer);
+                    now = System.nanoTime();
+                    // parseRecord measures the time spent constructing the row itself
+                    metrics.parseNanos += now - time - (metrics.constructNanos - constructNanos);
+                    time = now;
+                    if (!this.addRow(row)) {
+                        throw this.rowNotGenerated(lineNumber);
                     }
-                } else {
-                    if (parts.length != this.columnNames.size()) {
+                    now = System.nanoTime();
+                    metrics.addNanos += now - time;
+                    time = now;
+                }
+            }
+            if (metrics.timed) {
+                metrics.tokenizeNanos += System.nanoTime() - time;
+            }
+
+            // An error replaying the log is not about a row of the file
+            lineNumber = 0;
+            ChangeLog.Replay(this, filePath);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            this.failLoad(metrics, e, filePath, lineNumber);
+        }
+
+        this.endLoad(event, metrics, initialRows, file.length());
+    }
+
+    /**
+     * Loads some of the columns of a CSV file, keeping only the records accepted by a filter.
+     * The filter sees each record before any of its cells is converted, so records filtered out never create a row, and
+     * cells of columns that are not loaded are never converted at all. Columns that are not loaded keep their default
+     * value, and the file may leave them out or have columns the Row class does not declare.
+     * <p>
+     * When the table does not allow duplicates, rows are compared on the loaded columns only, since the others all
+     * hold their default value. Records that differ only in columns that are not loaded therefore make the same row,
+     * and only the first of them is kept. Unlike {@link #loadCSV(String)}, such duplicates are skipped instead of
+     * stopping the load, and counted as rejected rows in the {@link Metrics} of the load, unlike records filtered
+     * out. A file that has a {@link ChangeLog} cannot be loaded this way, since the log holds whole rows that were
+     * never filtered, and fails to load. Everything else works the same way as {@link #loadCSV(String)}
+     * @param columns Columns to load, or null for every column
+     * @param filter Filter deciding which records to load, or null to load all of them
+     */
+    public void loadCSV(String filePath, Collection<String> columns, RecordFilter filter) {
+        this.checkWritable();
+        if (this.filePath == null) {
+            this.filePath = filePath;
+        }
+
+        Events.Load event = new Events.Load();
+        Metrics metrics = this.startLoad(event, filePath, false);
+        int initialRows = this.numRows;
+        int lineNumber = 0;
+
+        try (Tokenizer tokenizer = new Tokenizer(new FileReader(filePath))) {
+            if (ChangeLog.HasLog(filePath)) {
+                throw new IllegalArgumentException(
+                        String.format("%s has a change log, which cannot be replayed into a partial load",
+                                filePath
+                        )
+                );
+            }
+            if (tokenizer.nextRecord()) {
+                String[] header = tokenizer.getCells();
+                int[] positions = this.project(header, columns, filePath);
+                // Values of the columns that are not loaded, for the constructor taking every column
+                Object[] defaults = new Object[this.numColumns];
+                for (int i = 0; i < this.numColumns; i++) {
+                    Class<?> type = this.schema.getColumn(i).getType();
+                    if (positions[i] < 0 && type.isPrimitive()) {
+                        defaults[i] = Array.get(Array.newInstance(type, 1), 0);
+                    }
+                }
+                Record record = new Record(tokenizer, header);
+                while (tokenizer.nextRecord()) {
+                    lineNumber = tokenizer.getLineNumber();
+                    if (tokenizer.getCellCount() != header.length) {
                         throw new Exceptions.Parse(
                                 String.format("Line %d has %d columns, expected %d",
                                         lineNumber,
-                                        parts.length,
-                                        this.columnNames.size()
+                                        tokenizer.getCellCount(),
+                                        header.length
                                 )
                         );
                     }
-
-                    for (int i = 0; i < this.columnNames.size(); i++) {
-                        String columnName = this.columnNames.get(i);
-                        Field field = this.columns.get(columnName);
-                        Class<?> type = field.getType();
-                        Class<?> parsedType = ParseTypeFromString(parts[i]);
-                        if (this.enumResolvers.containsKey(columnName)) {
-                            if (parsedType != Integer.class) {
-                                throw new Exceptions.Parse(
-                                        String.format("Line %d, column %s: Expected enum ordinal, got %s",
-                                                lineNumber,
-                                                columnName,
-                                                parsedType.getName()
-                                        )
-                                );
-                            }
-                            Class<?> enumClass = this.enumResolvers.get(columnName);
-                            ArrayList<java.lang.Enum<?>> enumConstants = new ArrayList<>(Arrays.asList((java.lang.Enum<?>[]) enumClass.getEnumConstants()));
-                            List<Integer> ordinals = enumConstants.stream().map(java.lang.Enum::ordinal).collect(Collectors.toList());
-                            if (!ordinals.contains(Integer.parseInt(parts[i]))) {
-                                throw new Exceptions.Parse(
-                                        String.format("Line %d, column %s: %s is not a valid enum value for %s",
-                                                lineNumber,
-                                                columnName,
-                                                parts[i],
-                                                enumClass.getName()
-                                        )
-                                );
-                            }
-                        } else
-                        // Make sure that the type of the value in the CSV file matches the correct column type declared in our row class
-                        if (!PrimitiveIsWrapper(type, parsedType)) {
-                            String[] wrapperParts = parsedType.getName().split("\\.");
-                            // Converts wrapper class name like java.lang.Float to float
-                            // Matches more similarly to the results of field.getType().getName()
-                            String wrapperName = wrapperParts[wrapperParts.length - 1].toLowerCase();
-                            throw new Exceptions.Parse(
-                                    String.format("Line %d column '%s' has type %s, expected %s",
-                                            lineNumber,
-                                            this.columnNames.get(i),
-                                            wrapperName,
-                                            type.getName()
-                                    )
-                            );
-                        }
+                    if (filter != null && !this.accept(filter, record)) {
+                        continue;
                     }
-
-                    if (!this.addRow(parts)) {
-                        throw new Exceptions.Parse(
-                                String.format("An instance of Row:%s could not be generated for unknown reasons. Line %d",
-                                        this.rowclass.getName(),
-                                        lineNumber
-                                )
-                        );
+                    T row = this.parseProjected(tokenizer, positions, defaults);
+                    if (row == null) {
+                        throw this.rowNotGenerated(lineNumber);
+                    }
+                    // Skips duplicates without printing them, as they are expected when columns are left out
+                    if (this.addRows(Collections.singletonList(row)) == 0) {
+                        metrics.rejected++;
                     }
                 }
-
-                lineNumber++;
-            }
-
-            if (!this.allowDuplicates) {
-                this.removeDuplicates();
             }
 
         } catch (Exception e) {
             e.printStackTrace();
+            this.failLoad(metrics, e, filePath, lineNumber);
         }
+
+        this.endLoad(event, metrics, initialRows, new File(filePath).length());
     }
 
-    public void loadCSV() {
-        this.loadCSV(this.filePath);
+    public void loadCSVParallel(String filePath) {
+        this.loadCSVParallel(filePath, ForkJoinPool.commonPool());
     }
 
-    public void saveCSV(String filePath) {
+    /**
+     * Loads a CSV file by splitting it into byte ranges that each start on a record boundary, then tokenizing and
+     * building the rows of every range as a separate task on the given pool.
+     * Rows are added to the table in file order, so the result, duplicate handling and the line numbers reported in
+     * exceptions are the same as for {@link #loadCSV(String)}.
+     * @implNote Ranges are split on raw bytes, so the file must use an ASCII compatible encoding such as UTF-8
+     */
+    public void loadCSVParallel(String filePath, ForkJoinPool pool) {
+        this.checkWritable();
+        if (this.filePath == null) {
+            this.filePath = filePath;
+        }
+
         File file = new File(filePath);
         if (!file.exists()) {
             try {
@@ -292,199 +307,1390 @@ public class Table<T extends Table.Row> {
                 e.printStackTrace();
             }
         }
-        try (PrintWriter writer = new PrintWriter(file)) {
-            writer.write(this.toString());
+
+        Events.Load event = new Events.Load();
+        Metrics metrics = this.startLoad(event, filePath, false);
+        int initialRows = this.numRows;
+        int lineNumber = 0;
+
+        ArrayList<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long targetSize = Math.max(MIN_CHUNK_SIZE, channel.size() / (pool.getParallelism() * 4L));
+            ArrayList<Tokenizer.Range> ranges = Tokenizer.Split(channel, Math.min(targetSize, MAX_CHUNK_SIZE));
+            if (ranges.isEmpty()) {
+                return;
+            }
+
+            try (Tokenizer tokenizer = this.openRange(channel, ranges.get(0))) {
+                tokenizer.nextRecord();
+                this.validateHeader(tokenizer.getCells(), filePath);
+            }
+
+            for (Tokenizer.Range range : ranges.subList(1, ranges.size())) {
+                tasks.add(pool.submit(() -> this.parseChunk(channel, range)));
+            }
+
+            for (ForkJoinTask<Chunk<T>> task : tasks) {
+                Chunk<T> chunk = task.join();
+                for (int i = 0; i < chunk.rows.size(); i++) {
+                    if (!this.addRow(chunk.rows.get(i))) {
+                        lineNumber = chunk.lines[i];
+                        throw this.rowNotGenerated(lineNumber);
+                    }
+                }
+                if (chunk.error != null) {
+                    lineNumber = chunk.errorLine;
+                    throw chunk.error;
+                }
+            }
+
+            ChangeLog.Replay(this, filePath);
+
         } catch (Exception e) {
+            for (ForkJoinTask<Chunk<T>> task : tasks) {
+                task.cancel(true);
+            }
             e.printStackTrace();
+            this.failLoad(metrics, e, filePath, lineNumber);
+        } finally {
+            this.endLoad(event, metrics, initialRows, file.length());
         }
     }
 
-    public void saveCSV() {
-        this.saveCSV(this.filePath);
+    public void loadCSVFiles(String directory, String glob) {
+        this.loadCSVFiles(directory, glob, ForkJoinPool.commonPool());
     }
 
     /**
-     * Removes all duplicates from the table that are currently present in this.rows
-     * @implNote This method requires that the Row class implements the Row.Equals interface or at least overrides the equals method from java.lang.Object
+     * Loads every file of a directory whose name matches a glob such as {@code "part-*.csv"}, in name order.
+     * See {@link #loadCSVFiles(Collection, ForkJoinPool)}
      */
-    public void removeDuplicates() {
-        for (int i = 0; i < this.rows.size(); i++) {
-            for (int j = i + 1; j < this.rows.size(); j++) {
-                if (this.rows.get(i).equals(this.rows.get(j))) {
-                    this.rows.remove(j);
-                    j--;
+    public void loadCSVFiles(String directory, String glob, ForkJoinPool pool) {
+        ArrayList<String> filePaths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), glob)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    filePaths.add(file.toString());
                 }
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
         }
+        Collections.sort(filePaths);
+        this.loadCSVFiles(filePaths, pool);
     }
 
-    @FunctionalInterface
-    public interface Caster<T> {
-        T cast(Object o);
+    public void loadCSVFiles(Collection<String> filePaths) {
+        this.loadCSVFiles(filePaths, ForkJoinPool.commonPool());
     }
 
-    // Gets all the values in a column
-    // Returns a list with wildcard type so the type can be inferred
-    // Sadly, even with reflection, we can't get the type of the column to be accessible as the return type as much as I'd like to
-    public ArrayList<?> getColumn(String column) {
-        ArrayList<Object> list = new ArrayList<>();
-        for (T row : this.rows) {
-            try {
-                list.add(this.columns.get(column).get(row));
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * Loads several CSV files with the same columns, such as the parts of a partitioned data set, into this table.
+     * Every file is split into byte ranges as in {@link #loadCSVParallel(String, ForkJoinPool)}, and the ranges of
+     * all files are tokenized and parsed as tasks on the given pool, so the load scales with the parallelism of the
+     * pool rather than the number or size of the files.
+     * <p>
+     * The header of every file must hold the same columns in the same order. Rows are added once every file has been
+     * parsed, in the order of the files and then of their records, so nothing is added if any file fails.
+     * Duplicates are skipped as rows are added, once across all files, instead of aborting the load as
+     * {@link #loadCSV(String)} does, and counted as rejected rows in the {@link Metrics} of the load. Empty files are
+     * skipped
+     * @implNote Ranges are split on raw bytes, so the files must use an ASCII compatible encoding such as UTF-8
+     */
+    public void loadCSVFiles(Collection<String> filePaths, ForkJoinPool pool) {
+        this.checkWritable();
+        Events.Load event = new Events.Load();
+        Metrics metrics = this.startLoad(event, String.join(File.pathSeparator, filePaths), false);
+        int initialRows = this.numRows;
+        long totalSize = 0;
+        String failedPath = null;
+        int lineNumber = 0;
+
+        ArrayList<ForkJoinTask<Shard<T>>> tasks = new ArrayList<>();
+        try {
+            for (String filePath : filePaths) {
+                totalSize += Files.size(Paths.get(filePath));
+            }
+            long targetSize = Math.max(MIN_CHUNK_SIZE, totalSize / (pool.getParallelism() * 4L));
+            for (String filePath : filePaths) {
+                tasks.add(pool.submit(() -> this.parseShard(filePath, Math.min(targetSize, MAX_CHUNK_SIZE))));
+            }
+
+            ArrayList<T> rows = new ArrayList<>();
+            String[] header = null;
+            for (ForkJoinTask<Shard<T>> task : tasks) {
+                Shard<T> shard = task.join();
+                if (header == null) {
+                    header = shard.header;
+                } else if (shard.header != null && !Arrays.equals(header, shard.header)) {
+                    throw new Exceptions.InvalidColumn(
+                            String.format("Header of %s is %s, expected %s",
+                                    shard.filePath,
+                                    String.join(",", shard.header),
+                                    String.join(",", header)
+                            )
+                    );
+                }
+                if (shard.error != null) {
+                    failedPath = shard.filePath;
+                    lineNumber = shard.errorLine;
+                    throw shard.error;
+                }
+                for (Chunk<T> chunk : shard.chunks) {
+                    rows.addAll(chunk.rows);
+                }
+            }
+            tasks.clear();
+
+            metrics.rejected += rows.size() - this.addRows(rows);
+            for (String filePath : filePaths) {
+                ChangeLog.Replay(this, filePath);
+            }
+
+        } catch (Exception e) {
+            for (ForkJoinTask<Shard<T>> task : tasks) {
+                task.cancel(true);
             }
+            e.printStackTrace();
+            this.failLoad(metrics, e, failedPath, lineNumber);
         }
-        return list;
+
+        this.endLoad(event, metrics, initialRows, totalSize);
     }
 
-    // Returns a typed listen given a column name and casting function
-    public <C> ArrayList<C> getColumn(String column, Caster<C> caster) {
-        ArrayList<C> list = new ArrayList<>();
-        for (T row : this.rows) {
-            try {
-                list.add(caster.cast(this.columns.get(column).get(row)));
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * Streams the rows of a CSV file without adding them to this table. Rows are parsed one at a time as the stream
+     * is consumed and can be collected as soon as they have passed through the pipeline, so files far larger than
+     * the heap can be filtered, mapped and aggregated at constant memory.
+     * <p>
+     * The header is validated before this method returns. Every row is checked the same way as in
+     * {@link #loadCSV(String)}, and a row that fails throws an {@link Exceptions.UncheckedParse} from the stream.
+     * Duplicate rows are not removed. The stream holds the file open and should be closed, for example with
+     * try-with-resources
+     */
+    public Stream<T> streamCSV(String filePath) throws IOException, Exceptions.Parse {
+        Tokenizer tokenizer = new Tokenizer(new FileReader(filePath));
+        try {
+            if (tokenizer.nextRecord()) {
+                this.validateHeader(tokenizer.getCells(), filePath);
             }
+        } catch (IOException | Exceptions.Parse e) {
+            tokenizer.close();
+            throw e;
         }
-        return list;
-    }
 
-    public ArrayList<T> getRows() {
-        return this.rows;
-    }
+        Iterator<T> iterator = new Iterator<>() {
+            private T next;
 
-    @FunctionalInterface
-    public interface RowFilter<T> {
-        boolean filter(T row);
-    }
+            @Override
+            public boolean hasNext() {
+                if (this.next == null) {
+                    try {
+                        if (tokenizer.nextRecord()) {
+                            this.next = Table.this.parseRecord(tokenizer);
+                            if (this.next == null) {
+                                throw Table.this.rowNotGenerated(tokenizer.getLineNumber());
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (Exceptions.Parse e) {
+                        throw new Exceptions.UncheckedParse(e);
+                    }
+                }
+                return this.next != null;
+            }
 
-    public T find(RowFilter<T> filter) {
-        for (T row : this.rows) {
-            if (filter.filter(row)) {
+            @Override
+            public T next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T row = this.next;
+                this.next = null;
                 return row;
             }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        tokenizer.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Loads a CSV file straight into a {@link ColumnStore}, without creating any Row objects or touching the rows of
+     * this table. The header and every cell are checked the same way as in {@link #loadCSV(String)}, but duplicate
+     * rows are kept
+     */
+    public ColumnStore<T> loadColumnStore(String filePath) throws IOException, Exceptions.Parse {
+        try (Tokenizer tokenizer = new Tokenizer(new FileReader(filePath))) {
+            return this.loadColumnStore(tokenizer, filePath);
         }
-        return null;
     }
 
-    public ArrayList<T> findAll(RowFilter<T> filter) {
-        ArrayList<T> list = new ArrayList<>();
-        for (T row : this.rows) {
-            if (filter.filter(row)) {
-                list.add(row);
+    private ColumnStore<T> loadColumnStore(Tokenizer tokenizer, String filePath) throws IOException, Exceptions.Parse {
+        ColumnStore<T> store = new ColumnStore<>(this.rowclass, 0);
+        if (tokenizer.nextRecord()) {
+            this.validateHeader(tokenizer.getCells(), filePath);
+            while (tokenizer.nextRecord()) {
+                this.checkCellCount(tokenizer);
+                store.ensureCapacity();
+                char[] buffer = tokenizer.getBuffer();
+                int i = 0;
+                try {
+                    for (; i < this.numColumns; i++) {
+                        store.parse(i, buffer, tokenizer.getStart(i), tokenizer.getEnd(i));
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw this.typeMismatch(tokenizer.getCell(i), i, tokenizer.getLineNumber());
+                }
+                store.commit();
             }
         }
-        return list;
+        return store.finish();
     }
 
-    public void sort(Sort.Sorter<T> sorter) {
-        this.rows.sort(sorter::sort);
+    // Copies the rows of this table into a ColumnStore
+    public ColumnStore<T> toColumnStore() {
+        ColumnStore<T> store = new ColumnStore<>(this.rowclass, this.rows.size());
+        for (T row : this.rows) {
+            store.add(row);
+        }
+        return store.finish();
     }
 
-    public boolean contains(T row) {
-        for (T t : this.rows) {
-            if (t.equals(row)) {
-                return true;
-            }
+    /**
+     * Creates a table holding the same rows, with the same indexes declared.
+     * The rows themselves are shared with this table, not copied
+     */
+    public Table<T> copy() {
+        Table<T> copy = new Table<>(this.rowclass, this.filePath, this.allowDuplicates);
+        copy.rows.addAll(this.rows);
+        copy.keys.addAll(this.keys);
+        copy.numRows = this.numRows;
+        for (Map.Entry<String, Index<T>> entry : this.indexes.entrySet()) {
+            copy.indexes.put(entry.getKey(), entry.getValue().copy());
         }
-        return false;
+        return copy;
     }
 
-    public boolean contains(RowFilter<T> filter) {
-        for (T t : this.rows) {
-            if (filter.filter(t)) {
-                return true;
-            }
+    /**
+     * Loads a CSV file through a binary snapshot kept next to it, see {@link Snapshot}.
+     * If the snapshot is missing or the CSV file was modified since it was written, the CSV file is parsed into a
+     * {@link ColumnStore} and a new snapshot is written. Rows are then created from the store, so the table ends up
+     * the same as after {@link #loadCSV(String)}
+     */
+    public void loadCSVCached(String filePath) {
+        this.checkWritable();
+        if (this.filePath == null) {
+            this.filePath = filePath;
         }
-        return false;
-    }
 
-    public boolean delete(T row) {
-        return this.rows.remove(row);
-    }
-    public boolean delete(RowFilter<T> filter) {
-        for (T t : this.rows) {
-            if (filter.filter(t)) {
-                return this.rows.remove(t);
+        Events.Load event = new Events.Load();
+        Metrics metrics = this.startLoad(event, filePath, false);
+        int initialRows = this.numRows;
+        int lineNumber = 0;
+
+        try {
+            Path csv = Paths.get(filePath);
+            Path snapshot = Snapshot.For(csv);
+            long csvSize = Files.size(csv);
+            long csvModified = Files.getLastModifiedTime(csv).toMillis();
+
+            ColumnStore<T> store = null;
+            try {
+                store = Snapshot.Read(snapshot, this.rowclass, csvSize, csvModified);
+            } catch (IOException e) {
+                // A corrupt or truncated snapshot is rebuilt from the CSV file
+                e.printStackTrace();
+            }
+            if (store == null) {
+                try (Tokenizer tokenizer = new Tokenizer(new FileReader(filePath))) {
+                    try {
+                        store = this.loadColumnStore(tokenizer, filePath);
+                    } catch (Exceptions.Parse e) {
+                        // Line 1 is the header, which is not a row
+                        lineNumber = tokenizer.getLineNumber() > 1 ? tokenizer.getLineNumber() : 0;
+                        throw e;
+                    }
+                }
+                try {
+                    Snapshot.Write(store, snapshot, csvSize, csvModified);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
-        }
-        return false;
-    }
 
-    public boolean findDelete(RowFilter<T> filter) {
-        T row = this.find(filter);
-        if (row != null) {
-            return this.delete(row);
+            for (int i = 0; i < store.size(); i++) {
+                if (!this.addRow(store.getRow(i))) {
+                    // Exact for files without line breaks inside quoted cells
+                    lineNumber = i + 2;
+                    throw this.rowNotGenerated(lineNumber);
+                }
+            }
+
+            ChangeLog.Replay(this, filePath);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            this.failLoad(metrics, e, filePath, lineNumber);
         }
-        return false;
-    }
 
-    public int getNumColumns() {
-        return this.numColumns;
+        this.endLoad(event, metrics, initialRows, new File(filePath).length());
     }
 
-    public int getNumRows() {
-        return this.numRows;
+    public void loadCSVCached() {
+        this.loadCSVCached(this.filePath);
     }
 
-    public int[] size() {
-        return new int[]{this.numColumns, this.numRows};
+    public void loadCSV() {
+        this.loadCSV(this.filePath);
     }
 
-    public String toString() {
-        StringBuilder out = new StringBuilder();
-        for (String str : this.columnNames) {
-            out.append(str);
-            if (!Objects.equals(str, this.columnNames.get(this.columnNames.size() - 1))) {
-                out.append(",");
-            }
-        }
+    /**
+     * Saves the table to a CSV file. Rows are streamed through a buffered writer into a temporary file next to the
+     * target, which is flushed to disk and then atomically replaces it, so the file is never left half written, even
+     * after a crash. The file keeps its permissions
+     */
+    public void saveCSV(String filePath) {
+        Events.Save event = new Events.Save();
+        event.begin();
+        Metrics metrics = new Metrics("save", filePath);
+        long start = System.nanoTime();
 
-        for (T row : this.rows) {
-            out.append("\n");
-            for (String str : this.columnNames) {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = AtomicFile.CreateTemp(target);
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+                this.writeCSV(writer);
+            }
+            metrics.writeNanos = System.nanoTime() - start;
+            metrics.rows = this.rows.size();
+            metrics.bytes = Files.size(temp);
+            AtomicFile.Commit(temp, target);
+        } catch (Exception e) {
+            e.printStackTrace();
+            metrics.error = e;
+            if (temp != null) {
                 try {
-                    Field field = this.columns.get(str);
-                    Object value = field.get(row);
-                    if (this.enumResolvers.containsKey(str)) {
-                        value = ((java.lang.Enum<?>) value).ordinal();
-                    }
-
-                    out.append(value.toString());
-                    if (!Objects.equals(str, this.columnNames.get(this.columnNames.size() - 1))) {
-                        out.append(",");
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
                 }
             }
         }
 
-        return out.toString();
+        metrics.totalNanos = System.nanoTime() - start;
+        if (event.shouldCommit()) {
+            event.set(metrics);
+            event.commit();
+        }
+        if (this.listener != null) {
+            this.listener.saved(metrics);
+        }
     }
 
-    @SafeVarargs
-    public final <V> boolean addRow(V... values) {
-        T row = this.createRow(values);
-        return this.addRow(row);
+    // Writes the header and every row, in the format of toString
+    private void writeCSV(Writer out) throws IOException {
+        RowWriter<T> writer = new RowWriter<>(out, this.rowclass);
+        writer.writeHeader();
+        for (T row : this.rows) {
+            writer.writeRow(row);
+        }
     }
 
-    public boolean addRow(T row) {
-        if (row != null) {
-            if (!this.allowDuplicates && this.contains(row)) {
-                System.out.printf("Row '%s' already exists in table\n", row);
-                return false;
-            }
+    public void saveCSV() {
+        this.saveCSV(this.filePath);
+    }
+
+    /**
+     * Removes all duplicates from the table that are currently present in this.rows, keeping the first occurrence.
+     * Duplicates are all found before any row is removed, so the table is left as it was if comparing rows throws
+     * @implNote Rows are compared with equals and hashCode if the Row class overrides both, otherwise by the values of their columns
+     */
+    public void removeDuplicates() {
+        this.checkWritable();
+        HashSet<Object> seen = new HashSet<>();
+        BitSet duplicates = new BitSet(this.rows.size());
+        for (int i = 0; i < this.rows.size(); i++) {
+            if (!seen.add(this.schema.key(this.rows.get(i)))) {
+                duplicates.set(i);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < this.rows.size(); i++) {
+            if (!duplicates.get(i)) {
+                this.rows.set(kept++, this.rows.get(i));
+            }
+        }
+        this.rows.subList(kept, this.rows.size()).clear();
+        this.numRows = kept;
+        if (!this.allowDuplicates) {
+            this.keys.clear();
+            this.keys.addAll(seen);
+        }
+        for (Index<T> index : this.indexes.values()) {
+            this.refill(index);
+        }
+    }
+
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    // Rows parsed from one byte range of a file, along with the line each of them started on.
+    // Parsing stops at the first error, which is kept so it can be thrown once the rows before it have been added
+    private static class Chunk<T> {
+        private final ArrayList<T> rows = new ArrayList<>();
+        private int[] lines = new int[64];
+        private Exception error;
+        // Line of the record the error is about, or 0 if it is not about a record
+        private int errorLine;
+
+        private void add(T row, int line) {
+            if (this.rows.size() == this.lines.length) {
+                this.lines = Arrays.copyOf(this.lines, this.lines.length * 2);
+            }
+            this.lines[this.rows.size()] = line;
+            this.rows.add(row);
+        }
+    }
+
+    // Chunks of one of the files loaded by loadCSVFiles. The header is null for an empty file
+    private static class Shard<T> {
+        private final String filePath;
+        private String[] header;
+        private final ArrayList<Chunk<T>> chunks = new ArrayList<>();
+        private Exception error;
+        private int errorLine;
+
+        private Shard(String filePath) {
+            this.filePath = filePath;
+        }
+    }
+
+    // Runs on the pool, where the chunks of the file are forked as further tasks that idle workers can take
+    private Shard<T> parseShard(String filePath, long targetSize) {
+        Shard<T> shard = new Shard<>(filePath);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ArrayList<Tokenizer.Range> ranges = Tokenizer.Split(channel, targetSize);
+            if (ranges.isEmpty()) {
+                return shard;
+            }
+
+            try (Tokenizer tokenizer = this.openRange(channel, ranges.get(0))) {
+                tokenizer.nextRecord();
+                shard.header = tokenizer.getCells();
+            }
+            this.validateHeader(shard.header, filePath);
+
+            ArrayList<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+            for (Tokenizer.Range range : ranges.subList(1, ranges.size())) {
+                tasks.add(ForkJoinTask.adapt(() -> this.parseChunk(channel, range)));
+            }
+            for (ForkJoinTask<Chunk<T>> task : ForkJoinTask.invokeAll(tasks)) {
+                Chunk<T> chunk = task.join();
+                if (chunk.error != null) {
+                    shard.errorLine = chunk.errorLine;
+                    throw chunk.error instanceof Exceptions.Parse && !(chunk.error instanceof Exceptions.InvalidColumn)
+                            ? new Exceptions.Parse(String.format("%s: %s", filePath, chunk.error.getMessage()))
+                            : chunk.error;
+                }
+                int missing = chunk.rows.indexOf(null);
+                if (missing >= 0) {
+                    shard.errorLine = chunk.lines[missing];
+                    throw this.rowNotGenerated(shard.errorLine);
+                }
+                shard.chunks.add(chunk);
+            }
+        } catch (Exception e) {
+            shard.error = e;
+        }
+        return shard;
+    }
+
+    private Tokenizer openRange(FileChannel channel, Tokenizer.Range range) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, range.getStart(), range.getLength());
+        return new Tokenizer(bytes, Charset.defaultCharset(), range.getFirstLine());
+    }
+
+    private Chunk<T> parseChunk(FileChannel channel, Tokenizer.Range range) {
+        Chunk<T> chunk = new Chunk<>();
+        try (Tokenizer tokenizer = this.openRange(channel, range)) {
+            try {
+                while (tokenizer.nextRecord()) {
+                    chunk.add(this.parseRecord(tokenizer), tokenizer.getLineNumber());
+                }
+            } catch (Exceptions.Parse e) {
+                chunk.error = e;
+                chunk.errorLine = tokenizer.getLineNumber();
+            }
+        } catch (Exception e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    // Validates that the first line contains the correct column names, and they match the Row class we were given
+    private void validateHeader(String[] parts, String filePath) throws Exceptions.InvalidColumn {
+        for (String str : parts) {
+            if (!this.columnNames.contains(str)) {
+                throw new Exceptions.InvalidColumn(
+                        String.format("Column %s does not exist on %s",
+                                str,
+                                this.rowclass.getName()
+                        )
+                );
+            }
+        }
+
+        // If there was a column declared on our Row class that wasn't in the CSV file,
+        // we throw an exception
+        for (String str : this.columnNames) {
+            if (!Arrays.asList(parts).contains(str)) {
+                throw new Exceptions.InvalidColumn(
+                        String.format("Column %s exists on '%s' but was not found in %s",
+                                this.schema.getColumn(str).getField().getName(),
+                                this.rowclass.getName(),
+                                filePath
+                        )
+                );
+            }
+        }
+    }
+
+    // Parses the current record of the tokenizer into a row without adding it to the table.
+    // Every cell is parsed once by the parser of its column, straight out of the tokenizer's buffer
+    private T parseRecord(Tokenizer tokenizer) throws Exceptions.Parse {
+        int lineNumber = tokenizer.getLineNumber();
+        this.checkCellCount(tokenizer);
+        if (this.codec != null) {
+            return this.read(tokenizer, 0);
+        }
+
+        char[] buffer = tokenizer.getBuffer();
+        Metrics metrics = this.metrics;
+        boolean timed = metrics != null && metrics.timed;
+        int i = 0;
+        try {
+            if (this.schema.hasConstructor()) {
+                Object[] args = new Object[this.numColumns];
+                for (; i < this.numColumns; i++) {
+                    args[i] = this.parser(i).parse(buffer, tokenizer.getStart(i), tokenizer.getEnd(i));
+                }
+                if (!timed) {
+                    return this.construct(args);
+                }
+                long start = System.nanoTime();
+                T row = this.construct(args);
+                metrics.constructNanos += System.nanoTime() - start;
+                return row;
+            }
+
+            long start = timed ? System.nanoTime() : 0;
+            T row = this.rowclass.cast(this.schema.newInstance());
+            if (timed) {
+                metrics.constructNanos += System.nanoTime() - start;
+            }
+            for (; i < this.numColumns; i++) {
+                this.parser(i).set(row, buffer, tokenizer.getStart(i), tokenizer.getEnd(i));
+            }
+            return row;
+        } catch (IllegalArgumentException e) {
+            if (i < this.numColumns) {
+                throw this.typeMismatch(tokenizer.getCell(i), i, lineNumber);
+            }
+            e.printStackTrace();
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Reads a row through the codec, which does not fall back: a malformed cell or a constructor that throws fails the
+    // record. Only then are the cells parsed again, without creating a row, to tell which one is malformed
+    private T read(Tokenizer tokenizer, int firstCell) throws Exceptions.Parse {
+        try {
+            return this.codec.read(tokenizer, firstCell);
+        } catch (RuntimeException e) {
+            char[] buffer = tokenizer.getBuffer();
+            for (int i = 0; i < this.numColumns; i++) {
+                try {
+                    this.parser(i).parse(buffer, tokenizer.getStart(firstCell + i), tokenizer.getEnd(firstCell + i));
+                } catch (IllegalArgumentException malformed) {
+                    throw this.typeMismatch(tokenizer.getCell(firstCell + i), i, tokenizer.getLineNumber());
+                }
+            }
+            Exceptions.Parse error = new Exceptions.Parse(
+                    String.format("Line %d: an instance of %s could not be created: %s",
+                            tokenizer.getLineNumber(),
+                            this.rowclass.getName(),
+                            e
+                    )
+            );
+            error.initCause(e);
+            throw error;
+        }
+    }
+
+    // Maps every column of the Row class to the position of its cell in the header, or -1 if it is not loaded
+    private int[] project(String[] header, Collection<String> columns, String filePath) throws Exceptions.InvalidColumn {
+        List<String> headerColumns = Arrays.asList(header);
+        int[] positions = new int[this.numColumns];
+        Arrays.fill(positions, -1);
+        for (String column : columns != null ? columns : this.columnNames) {
+            int i = this.columnNames.indexOf(column);
+            if (i < 0) {
+                throw new Exceptions.InvalidColumn(
+                        String.format("Column %s does not exist on %s",
+                                column,
+                                this.rowclass.getName()
+                        )
+                );
+            }
+            positions[i] = headerColumns.indexOf(column);
+            if (positions[i] < 0) {
+                throw new Exceptions.InvalidColumn(
+                        String.format("Column %s exists on '%s' but was not found in %s",
+                                this.schema.getColumn(i).getField().getName(),
+                                this.rowclass.getName(),
+                                filePath
+                        )
+                );
+            }
+        }
+        return positions;
+    }
+
+    private boolean accept(RecordFilter filter, Record record) throws Exceptions.Parse {
+        try {
+            return filter.filter(record);
+        } catch (IllegalArgumentException e) {
+            throw new Exceptions.Parse(String.format("Line %d: %s", record.getLineNumber(), e.getMessage()));
+        }
+    }
+
+    // Parses a record whose cells for the columns start at firstCell, after cells the caller reads itself
+    T parseRecord(Tokenizer tokenizer, int firstCell) throws Exceptions.Parse {
+        if (tokenizer.getCellCount() != this.numColumns + firstCell) {
+            throw new Exceptions.Parse(
+                    String.format("Line %d has %d columns, expected %d",
+                            tokenizer.getLineNumber(),
+                            tokenizer.getCellCount(),
+                            this.numColumns + firstCell
+                    )
+            );
+        }
+        if (this.codec != null) {
+            return this.read(tokenizer, firstCell);
+        }
+        int[] positions = new int[this.numColumns];
+        for (int i = 0; i < this.numColumns; i++) {
+            positions[i] = firstCell + i;
+        }
+        T row = this.parseProjected(tokenizer, positions, new Object[this.numColumns]);
+        if (row == null) {
+            throw this.rowNotGenerated(tokenizer.getLineNumber());
+        }
+        return row;
+    }
+
+    // Same as parseRecord, but only converts the cells of the columns that have a position
+    private T parseProjected(Tokenizer tokenizer, int[] positions, Object[] defaults) throws Exceptions.Parse {
+        char[] buffer = tokenizer.getBuffer();
+        int i = 0;
+        try {
+            if (this.schema.hasConstructor()) {
+                Object[] args = defaults.clone();
+                for (; i < this.numColumns; i++) {
+                    if (positions[i] >= 0) {
+                        args[i] = this.parser(i).parse(buffer, tokenizer.getStart(positions[i]), tokenizer.getEnd(positions[i]));
+                    }
+                }
+                return this.construct(args);
+            }
+
+            T row = this.rowclass.cast(this.schema.newInstance());
+            for (; i < this.numColumns; i++) {
+                if (positions[i] >= 0) {
+                    this.parser(i).set(row, buffer, tokenizer.getStart(positions[i]), tokenizer.getEnd(positions[i]));
+                }
+            }
+            return row;
+        } catch (IllegalArgumentException e) {
+            if (i < this.numColumns) {
+                throw this.typeMismatch(tokenizer.getCell(positions[i]), i, tokenizer.getLineNumber());
+            }
+            e.printStackTrace();
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private void checkCellCount(Tokenizer tokenizer) throws Exceptions.Parse {
+        if (tokenizer.getCellCount() != this.numColumns) {
+            throw new Exceptions.Parse(
+                    String.format("Line %d has %d columns, expected %d",
+                            tokenizer.getLineNumber(),
+                            tokenizer.getCellCount(),
+                            this.numColumns
+                    )
+            );
+        }
+    }
+
+    private Parsers.Parser parser(int column) {
+        Parsers.Parser parser = this.schema.getColumn(column).getParser();
+        if (parser == null) {
+            throw new IllegalArgumentException("Unsupported column type");
+        }
+        return parser;
+    }
+
+    // Builds the exception for a cell that could not be parsed. Only runs once a load has already failed,
+    // so it is fine to sniff the type of the value for the message
+    private Exceptions.Parse typeMismatch(String cell, int column, int lineNumber) {
+        String columnName = this.columnNames.get(column);
+        Schema.Accessor accessor = this.schema.getColumn(column);
+        Class<?> parsedType = ParseTypeFromString(cell);
+        if (accessor.getEnumClass() != null) {
+            if (parsedType != Integer.class) {
+                return new Exceptions.Parse(
+                        String.format("Line %d, column %s: Expected enum ordinal, got %s",
+                                lineNumber,
+                                columnName,
+                                parsedType.getName()
+                        )
+                );
+            }
+            return new Exceptions.Parse(
+                    String.format("Line %d, column %s: %s is not a valid enum value for %s",
+                            lineNumber,
+                            columnName,
+                            cell,
+                            accessor.getEnumClass().getName()
+                    )
+            );
+        }
+
+        String[] wrapperParts = parsedType.getName().split("\\.");
+        // Converts wrapper class name like java.lang.Float to float
+        // Matches more similarly to the results of field.getType().getName()
+        String wrapperName = wrapperParts[wrapperParts.length - 1].toLowerCase();
+        return new Exceptions.Parse(
+                String.format("Line %d column '%s' has type %s, expected %s",
+                        lineNumber,
+                        columnName,
+                        wrapperName,
+                        accessor.getType().getName()
+                )
+        );
+    }
+
+    private Exceptions.Parse rowNotGenerated(int lineNumber) {
+        return new Exceptions.Parse(
+                String.format("An instance of Row:%s could not be generated for unknown reasons. Line %d",
+                        this.rowclass.getName(),
+                        lineNumber
+                )
+        );
+    }
+
+    @FunctionalInterface
+    public interface Caster<T> {
+        T cast(Object o);
+    }
+
+    // Gets all the values in a column
+    // Returns a list with wildcard type so the type can be inferred
+    // Sadly, even with reflection, we can't get the type of the column to be accessible as the return type as much as I'd like to
+    public ArrayList<?> getColumn(String column) {
+        Schema.Accessor accessor = this.schema.getColumn(column);
+        ArrayList<Object> list = new ArrayList<>();
+        for (T row : this.rows) {
+            try {
+                list.add(accessor.get(row));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return list;
+    }
+
+    // Returns a typed listen given a column name and casting function
+    public <C> ArrayList<C> getColumn(String column, Caster<C> caster) {
+        Schema.Accessor accessor = this.schema.getColumn(column);
+        ArrayList<C> list = new ArrayList<>();
+        for (T row : this.rows) {
+            try {
+                list.add(caster.cast(accessor.get(row)));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return list;
+    }
+
+    // Primitive counterparts of getColumn, reading every row through its typed accessor without boxing
+
+    public int[] getIntColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, int.class);
+        int[] values = new int[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getInt(this.rows.get(i));
+        }
+        return values;
+    }
+
+    public long[] getLongColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, long.class);
+        long[] values = new long[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getLong(this.rows.get(i));
+        }
+        return values;
+    }
+
+    public float[] getFloatColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, float.class);
+        float[] values = new float[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getFloat(this.rows.get(i));
+        }
+        return values;
+    }
+
+    public double[] getDoubleColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, double.class);
+        double[] values = new double[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getDouble(this.rows.get(i));
+        }
+        return values;
+    }
+
+    public boolean[] getBooleanColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, boolean.class);
+        boolean[] values = new boolean[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getBoolean(this.rows.get(i));
+        }
+        return values;
+    }
+
+    public char[] getCharColumn(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.primitive(column, char.class);
+        char[] values = new char[this.rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = accessor.getChar(this.rows.get(i));
+        }
+        return values;
+    }
+
+    private Schema.Accessor primitive(String column, Class<?> type) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.accessor(column);
+        if (accessor.getType() != type) {
+            throw new IllegalArgumentException(
+                    String.format("Column %s has type %s, expected %s",
+                            column,
+                            accessor.getType().getName(),
+                            type.getName()
+                    )
+            );
+        }
+        return accessor;
+    }
+
+    /**
+     * Returns the list of rows of the table. Rows added or removed directly through this list bypass duplicate
+     * detection. A read only table returns a copy instead
+     */
+    public ArrayList<T> getRows() {
+        if (this.readOnly) {
+            return new ArrayList<>(this.rows);
+        }
+        return this.rows;
+    }
+
+    // Rows of the table, which cannot be modified through the list. Used by ConcurrentTable
+    List<T> rowsView() {
+        return Collections.unmodifiableList(this.rows);
+    }
+
+    @FunctionalInterface
+    public interface RowFilter<T> {
+        boolean filter(T row);
+    }
+
+    /**
+     * Receives metrics about the loads and saves of a table, see {@link #setListener(Listener)}.
+     * Constructor fallbacks can also happen on the threads of a parallel load, so implementations should be thread safe
+     */
+    public interface Listener {
+
+        // Called once a load of one or more CSV files is done, whether or not it succeeded
+        default void loaded(Metrics metrics) {}
+
+        // Called once saveCSV(String) is done, whether or not it succeeded
+        default void saved(Metrics metrics) {}
+
+        // Called when a row of a file fails to load, which stops the load
+        default void rowRejected(String filePath, int lineNumber, Exception reason) {}
+
+        // Called when a row is created through the default constructor because the constructor taking every column failed
+        default void constructorFallback(Class<?> rowclass, ReflectiveOperationException reason) {}
+
+    }
+
+    /**
+     * Sets a listener for metrics about the loads and saves of this table. Phases of a load are only timed while a
+     * listener is set or the csv.Load JFR event is enabled, see {@link Events} and {@link Metrics}
+     * @param listener The listener, or null to remove it
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Decides whether a record of a CSV file is loaded, before it is turned into a row
+    @FunctionalInterface
+    public interface RecordFilter {
+        boolean filter(Record record);
+    }
+
+    public T find(RowFilter<T> filter) {
+        for (T row : this.rows) {
+            if (filter.filter(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    public ArrayList<T> findAll(RowFilter<T> filter) {
+        ArrayList<T> list = new ArrayList<>();
+        for (T row : this.rows) {
+            if (filter.filter(row)) {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Declares a hash index on a column, which findBy uses for equality lookups.
+     * Replaces any index previously declared on the column
+     */
+    public void createIndex(String column) throws Exceptions.InvalidColumn {
+        this.checkWritable();
+        Index<T> index = new Index.Hash<>(this.accessor(column));
+        this.refill(index);
+        this.indexes.put(column, index);
+    }
+
+    /**
+     * Declares a sorted index on a column, which findBy uses for equality lookups and findRange for range lookups.
+     * Replaces any index previously declared on the column
+     */
+    public void createSortedIndex(String column) throws Exceptions.InvalidColumn {
+        this.checkWritable();
+        Index<T> index = new Index.Sorted<>(this.accessor(column));
+        this.refill(index);
+        this.indexes.put(column, index);
+    }
+
+    public boolean dropIndex(String column) {
+        this.checkWritable();
+        return this.indexes.remove(column) != null;
+    }
+
+    public boolean hasIndex(String column) {
+        return this.indexes.containsKey(column);
+    }
+
+    // Finds all rows whose column equals the value. Uses the index of the column if there is one, otherwise scans every row
+    public ArrayList<T> findBy(String column, Object value) throws Exceptions.InvalidColumn {
+        Index<T> index = this.indexes.get(column);
+        if (index != null) {
+            return index.find(value);
+        }
+
+        Schema.Accessor accessor = this.accessor(column);
+        Object normalized = Index.Normalize(accessor, value);
+        ArrayList<T> list = new ArrayList<>();
+        for (T row : this.rows) {
+            if (Objects.equals(accessor.get(row), normalized)) {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds all rows whose column lies between lo and hi, both inclusive, in ascending order of the column.
+     * Uses the sorted index of the column if there is one, otherwise scans and sorts the matching rows
+     * @param lo Lower bound, or null for no lower bound
+     * @param hi Upper bound, or null for no upper bound
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ArrayList<T> findRange(String column, Object lo, Object hi) throws Exceptions.InvalidColumn {
+        Index<T> index = this.indexes.get(column);
+        if (index instanceof Index.Sorted) {
+            return ((Index.Sorted<T>) index).range(lo, hi);
+        }
+
+        Schema.Accessor accessor = this.accessor(column);
+        Object lower = lo == null ? null : Index.Bound(accessor, lo, true);
+        Object upper = hi == null ? null : Index.Bound(accessor, hi, false);
+        ArrayList<T> list = new ArrayList<>();
+        if (lower == Index.NO_MATCH || upper == Index.NO_MATCH) {
+            return list;
+        }
+        Comparable low = (Comparable) lower;
+        Comparable high = (Comparable) upper;
+        for (T row : this.rows) {
+            Object value = accessor.get(row);
+            if (value != null && (low == null || low.compareTo(value) <= 0) && (high == null || high.compareTo(value) >= 0)) {
+                list.add(row);
+            }
+        }
+        list.sort(accessor::compare);
+        return list;
+    }
+
+    private Schema.Accessor accessor(String column) throws Exceptions.InvalidColumn {
+        Schema.Accessor accessor = this.schema.getColumn(column);
+        if (accessor == null) {
+            throw new Exceptions.InvalidColumn(
+                    String.format("Column %s does not exist on %s",
+                            column,
+                            this.rowclass.getName()
+                    )
+            );
+        }
+        return accessor;
+    }
+
+    private void refill(Index<T> index) {
+        index.clear();
+        for (T row : this.rows) {
+            index.add(row);
+        }
+    }
+
+    /**
+     * Starts an aggregation of the rows grouped by the given columns, see {@link Aggregation}.
+     * With no columns every row falls into a single group
+     */
+    public Aggregation<T> groupBy(String... columns) throws Exceptions.InvalidColumn {
+        return new Aggregation<>(this.rows, this.rowclass, columns);
+    }
+
+    /**
+     * Starts an inner join of this table with another, pairing every row of this table with each row of the other
+     * whose column has an equal value, see {@link Join}
+     */
+    public <U extends Row> Join<T, U> join(Table<U> other, String column, String otherColumn) throws Exceptions.InvalidColumn {
+        return new Join<>(this.rows, this.accessor(column), other.rows, other.accessor(otherColumn), false);
+    }
+
+    // Same as join, but also keeps the rows of this table without a match, paired with null
+    public <U extends Row> Join<T, U> leftJoin(Table<U> other, String column, String otherColumn) throws Exceptions.InvalidColumn {
+        return new Join<>(this.rows, this.accessor(column), other.rows, other.accessor(otherColumn), true);
+    }
+
+    public void sort(Sort.Sorter<T> sorter) {
+        this.checkWritable();
+        this.rows.sort(sorter::sort);
+    }
+
+    /**
+     * Sorts the rows the same way as sort, but with a parallel merge sort on the common pool, which pays off for
+     * large tables. Like sort, the sort is stable
+     */
+    @SuppressWarnings("unchecked")
+    public void parallelSort(Sort.Sorter<T> sorter) {
+        this.checkWritable();
+        T[] array = (T[]) this.rows.toArray(new Row[0]);
+        Arrays.parallelSort(array, sorter::sort);
+        for (int i = 0; i < array.length; i++) {
+            this.rows.set(i, array[i]);
+        }
+    }
+
+    /**
+     * Returns the first k rows in the order of the sorter, without sorting or otherwise changing the table.
+     * Keeps a heap of the k smallest rows seen so far, so runs in O(n log k). Rows the sorter considers equal stay in
+     * table order
+     * @throws IllegalArgumentException if k is negative
+     */
+    public ArrayList<T> topK(Sort.Sorter<T> sorter, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(String.format("k must not be negative, got %d", k));
+        }
+        k = Math.min(k, this.rows.size());
+        ArrayList<T> list = new ArrayList<>(k);
+        if (k == 0) {
+            return list;
+        }
+
+        // Max heap of row positions, with the largest of the rows kept so far at the root
+        int[] heap = new int[k];
+        for (int i = 0; i < k; i++) {
+            heap[i] = i;
+        }
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            this.siftDown(heap, i, k, sorter);
+        }
+        for (int i = k; i < this.rows.size(); i++) {
+            if (this.compare(i, heap[0], sorter) < 0) {
+                heap[0] = i;
+                this.siftDown(heap, 0, k, sorter);
+            }
+        }
+
+        // Heap sort the positions kept into ascending order
+        for (int end = k - 1; end > 0; end--) {
+            int root = heap[0];
+            heap[0] = heap[end];
+            heap[end] = root;
+            this.siftDown(heap, 0, end, sorter);
+        }
+        for (int position : heap) {
+            list.add(this.rows.get(position));
+        }
+        return list;
+    }
+
+    /**
+     * Returns up to limit rows starting at offset in the order of the sorter, without changing the table
+     * @throws IllegalArgumentException if offset or limit is negative
+     * @see #topK(Sort.Sorter, int)
+     */
+    public ArrayList<T> page(Sort.Sorter<T> sorter, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Page offset and limit must not be negative, got offset %d and limit %d",
+                            offset,
+                            limit
+                    )
+            );
+        }
+        ArrayList<T> top = this.topK(sorter, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+        return offset >= top.size() ? new ArrayList<>() : new ArrayList<>(top.subList(offset, top.size()));
+    }
+
+    private void siftDown(int[] heap, int i, int size, Sort.Sorter<T> sorter) {
+        int position = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && this.compare(heap[child + 1], heap[child], sorter) > 0) {
+                child++;
+            }
+            if (this.compare(heap[child], position, sorter) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = position;
+    }
+
+    // Compares the rows at two positions, breaking ties by position
+    private int compare(int a, int b, Sort.Sorter<T> sorter) {
+        int result = sorter.sort(this.rows.get(a), this.rows.get(b));
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    public boolean contains(T row) {
+        if (!this.allowDuplicates) {
+            return row != null && this.keys.contains(this.schema.key(row));
+        }
+        for (T t : this.rows) {
+            if (t.equals(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(RowFilter<T> filter) {
+        for (T t : this.rows) {
+            if (filter.filter(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean delete(T row) {
+        this.checkWritable();
+        int index = this.rows.indexOf(row);
+        if (index < 0) {
+            return false;
+        }
+        this.removed(this.rows.remove(index));
+        return true;
+    }
+
+    // Deletes the row with the same column values as the given one, which need not be the same instance.
+    // Used by ChangeLog, whose rows are parsed back from the log
+    boolean deleteEqual(T row) {
+        this.checkWritable();
+        Object key = this.schema.key(row);
+        if (!this.allowDuplicates && !this.keys.contains(key)) {
+            return false;
+        }
+        for (int i = 0; i < this.rows.size(); i++) {
+            if (key.equals(this.schema.key(this.rows.get(i)))) {
+                this.removed(this.rows.remove(i));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean delete(RowFilter<T> filter) {
+        this.checkWritable();
+        for (int i = 0; i < this.rows.size(); i++) {
+            if (filter.filter(this.rows.get(i))) {
+                this.removed(this.rows.remove(i));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes every row matching the filter, then compacts the remaining rows in place in a single pass.
+     * The filter sees every row before any is deleted, so the table is left as it was if the filter throws
+     * @return The number of rows deleted
+     */
+    public int deleteAll(RowFilter<T> filter) {
+        this.checkWritable();
+        BitSet matches = new BitSet(this.rows.size());
+        for (int i = 0; i < this.rows.size(); i++) {
+            if (filter.filter(this.rows.get(i))) {
+                matches.set(i);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < this.rows.size(); i++) {
+            T row = this.rows.get(i);
+            if (!matches.get(i)) {
+                this.rows.set(kept++, row);
+            } else if (!this.allowDuplicates) {
+                this.keys.remove(this.schema.key(row));
+            }
+        }
+
+        int deleted = this.rows.size() - kept;
+        if (deleted > 0) {
+            this.rows.subList(kept, this.rows.size()).clear();
+            this.numRows = kept;
+            // Rebuilding is a single pass, where removing rows one by one would search a bucket for each
+            for (Index<T> index : this.indexes.values()) {
+                this.refill(index);
+            }
+        }
+        return deleted;
+    }
+
+    public boolean findDelete(RowFilter<T> filter) {
+        T row = this.find(filter);
+        if (row != null) {
+            return this.delete(row);
+        }
+        return false;
+    }
+
+    public int getNumColumns() {
+        return this.numColumns;
+    }
+
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    public boolean allowsDuplicates() {
+        return this.allowDuplicates;
+    }
+
+    // Whether every method that would change the table throws an UnsupportedOperationException
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    // Makes the table read only for good. Copies of the table are not read only
+    void makeReadOnly() {
+        this.readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("Table is read only");
+        }
+    }
+
+    public int[] size() {
+        return new int[]{this.numColumns, this.numRows};
+    }
+
+    public String toString() {
+        StringWriter out = new StringWriter();
+        try {
+            this.writeCSV(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return out.toString();
+    }
+
+    @SafeVarargs
+    public final <V> boolean addRow(V... values) {
+        T row = this.createRow(values);
+        return this.addRow(row);
+    }
+
+    public boolean addRow(T row) {
+        this.checkWritable();
+        if (row != null) {
+            if (!this.allowDuplicates && !this.keys.add(this.schema.key(row))) {
+                System.out.printf("Row '%s' already exists in table\n", row);
+                return false;
+            }
             this.rows.add(row);
             this.numRows++;
+            for (Index<T> index : this.indexes.values()) {
+                index.add(row);
+            }
             return true;
         } else {
             return false;
         }
     }
 
+    // Keeps the bookkeeping of the table in sync after a row was taken out of this.rows
+    private void removed(T row) {
+        if (!this.allowDuplicates) {
+            this.keys.remove(this.schema.key(row));
+        }
+        for (Index<T> index : this.indexes.values()) {
+            index.remove(row);
+        }
+        this.numRows--;
+    }
+
     public boolean addAllRows(T...rows) {
         for (T row : rows) {
             if (!this.addRow(row)) {
@@ -494,56 +1700,189 @@ public class Table<T extends Table.Row> {
         return true;
     }
 
+    /**
+     * Parses the remaining records of a tokenizer into rows without adding them, so that a caller can add them with
+     * addRows only once every record parsed. Used by TailLoader
+     * @param filePath File the records come from if the first record is its header, which is then validated, or null
+     */
+    ArrayList<T> parseRecords(Tokenizer tokenizer, String filePath) throws IOException, Exceptions.Parse {
+        ArrayList<T> batch = new ArrayList<>();
+        if (filePath != null) {
+            if (!tokenizer.nextRecord()) {
+                return batch;
+            }
+            this.validateHeader(tokenizer.getCells(), filePath);
+        }
+
+        while (tokenizer.nextRecord()) {
+            T row = this.parseRecord(tokenizer);
+            if (row == null) {
+                throw this.rowNotGenerated(tokenizer.getLineNumber());
+            }
+            batch.add(row);
+        }
+        return batch;
+    }
+
+    // Removes every row, keeping the declared indexes
+    public void clear() {
+        this.checkWritable();
+        this.rows.clear();
+        this.keys.clear();
+        this.numRows = 0;
+        for (Index<T> index : this.indexes.values()) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Adds every row of a collection. Unlike addAllRows, null rows and duplicates are skipped instead of stopping
+     * the batch, and nothing is printed for them
+     * @return The number of rows added
+     */
+    public int addRows(Collection<T> rows) {
+        this.checkWritable();
+        this.rows.ensureCapacity(this.rows.size() + rows.size());
+        int added = 0;
+        for (T row : rows) {
+            if (row == null || (!this.allowDuplicates && !this.keys.add(this.schema.key(row)))) {
+                continue;
+            }
+            this.rows.add(row);
+            for (Index<T> index : this.indexes.values()) {
+                index.add(row);
+            }
+            added++;
+        }
+        this.numRows += added;
+        return added;
+    }
+
+    /**
+     * Creates a row from values given in column order.
+     * Values that already have the type of their column are used as is, anything else is parsed from its string form
+     * @return null if the values do not match the columns
+     */
     public T createRow(Object[] values) {
         try {
-            Class<?>[] types = new Class<?>[values.length];
             Object[] args = new Object[values.length];
             for (int i = 0; i < values.length; i++) {
-                if (this.enumResolvers.containsKey(this.columnNames.get(i))) {
-                    types[i] = this.enumResolvers.get(this.columnNames.get(i));
-                    args[i] = this.enumResolvers.get(this.columnNames.get(i)).getEnumConstants()[Integer.parseInt(values[i].toString())];
-                } else {
-                    types[i] = WrapperToPrimitive(ParseTypeFromString(values[i].toString()));
+                Class<?> type = this.schema.getColumn(i).getType();
+                if (type.isInstance(values[i]) || PrimitiveIsWrapper(type, values[i].getClass())) {
                     args[i] = values[i];
+                } else {
+                    char[] chars = values[i].toString().trim().toCharArray();
+                    args[i] = this.parser(i).parse(chars, 0, chars.length);
                 }
             }
-            return this.rowclass.getDeclaredConstructor(types).newInstance(args);
-        } catch (Exception e1) {
+            return this.construct(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Prefers the constructor taking every column, falling back to the default constructor and setting each field.
+    // A codec has no fallback, so a constructor it calls that throws is reported the way reflection reports it
+    private T construct(Object[] args) throws ReflectiveOperationException {
+        if (this.codec != null) {
+            try {
+                return this.codec.create(args);
+            } catch (RuntimeException e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+        if (this.schema.hasConstructor()) {
             try {
-                T row = this.rowclass.getDeclaredConstructor().newInstance();
-                for (int i = 0; i < values.length; i++) {
-                    Field field = this.columns.get(this.columnNames.get(i));
-                    if (this.enumResolvers.containsKey(this.columnNames.get(i))) {
-                        field.set(row, this.enumResolvers.get(this.columnNames.get(i)).getEnumConstants()[Integer.parseInt(values[i].toString())]);
-                    } else {
-                        field.set(row, ParseValueFromString(values[i].toString()));
-                    }
+                return this.rowclass.cast(this.schema.newInstance(args));
+            } catch (ReflectiveOperationException e) {
+                if (!this.schema.hasDefaultConstructor()) {
+                    throw e;
                 }
-                return row;
-            } catch (Exception e2) {
-                e2.printStackTrace();
+                this.constructorFallback(e);
             }
-            e1.printStackTrace();
         }
-        return null;
+
+        T row = this.rowclass.cast(this.schema.newInstance());
+        for (int i = 0; i < args.length; i++) {
+            this.schema.getColumn(i).set(row, args[i]);
+        }
+        return row;
     }
 
-    private int doReflectionTasks() {
-        Field[] fields = this.rowclass.getDeclaredFields();
-        int columnCount = 0;
-        for (Field field : fields) {
-            String fname = field.getName().toLowerCase();
-            if (field.isAnnotationPresent(Column.class)) {
-                field.setAccessible(true);
-                columns.put(fname, field);
-                this.columnNames.add(fname);
-                columnCount++;
-            }
-            if (field.isAnnotationPresent(Enum.class)) {
-                this.enumResolvers.put(fname, field.getAnnotation(Enum.class).enumClass());
+    // Starts the metrics of a load, which parseRecord and constructorFallback add to until endLoad.
+    // Phases are only timed if asked for and someone is listening
+    private Metrics startLoad(Events.Load event, String filePath, boolean timed) {
+        event.begin();
+        Metrics metrics = new Metrics("load", filePath);
+        metrics.timed = timed && (this.listener != null || event.isEnabled());
+        metrics.startNanos = System.nanoTime();
+        this.metrics = metrics;
+        return metrics;
+    }
+
+    // Records the exception that stopped a load, and the row it rejected if it stopped on a record of the file
+    private void failLoad(Metrics metrics, Exception e, String filePath, int lineNumber) {
+        metrics.error = e;
+        if (lineNumber > 0) {
+            metrics.rejected++;
+            this.rejected(filePath, lineNumber, e);
+        }
+    }
+
+    // Reports a load that completed or failed to JFR and the listener
+    private void endLoad(Events.Load event, Metrics metrics, int initialRows, long bytes) {
+        this.metrics = null;
+        metrics.rows = this.numRows - initialRows;
+        metrics.bytes = bytes;
+        metrics.totalNanos = System.nanoTime() - metrics.startNanos;
+        if (event.shouldCommit()) {
+            event.set(metrics);
+            event.commit();
+        }
+        if (this.listener != null) {
+            this.listener.loaded(metrics);
+        }
+    }
+
+    // Reports a row that could not be loaded from a file to the listener and JFR
+    private void rejected(String filePath, int lineNumber, Exception reason) {
+        Events.RowRejected event = new Events.RowRejected();
+        if (event.isEnabled()) {
+            event.path = filePath;
+            event.line = lineNumber;
+            event.reason = reason.getMessage();
+            event.commit();
+        }
+        if (this.listener != null) {
+            this.listener.rowRejected(filePath, lineNumber, reason);
+        }
+    }
+
+    private void constructorFallback(ReflectiveOperationException reason) {
+        Metrics metrics = this.metrics;
+        if (metrics != null) {
+            // Parallel loads create rows on several threads
+            synchronized (metrics) {
+                metrics.constructorFallbacks++;
             }
         }
-        return columnCount;
+        Events.ConstructorFallback event = new Events.ConstructorFallback();
+        if (event.isEnabled()) {
+            event.rowClass = this.rowclass;
+            event.reason = String.valueOf(reason.getCause() != null ? reason.getCause() : reason);
+            event.commit();
+        }
+        if (this.listener != null) {
+            this.listener.constructorFallback(this.rowclass, reason);
+        }
+    }
+
+    private int doReflectionTasks() {
+        this.schema = Schema.Of(this.rowclass);
+        this.codec = Codec.For(this.rowclass);
+        this.columnNames = this.schema.getColumnNames();
+        return this.schema.getNumColumns();
     }
 
 }
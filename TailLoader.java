@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a {@link Table} up to date with a CSV file that is being appended to, parsing only the records added since
+ * the last refresh.
+ * <p>
+ * The loader remembers the byte offset up to which it has read the file, along with a checksum of the bytes before
+ * it. A refresh parses the complete records after the offset and adds them to the table, skipping duplicates when the
+ * table does not allow them, so it takes time proportional to the new data. If the file was truncated, replaced, or
+ * its start no longer matches the checksum, the whole file is loaded again and its rows replace those of the table.
+ * In both cases every record is parsed before the table changes, so a refresh that fails changes nothing.
+ * <p>
+ * A record counts as complete once it is followed by a line break. Since {@link Table#saveCSV(String)} writes no line
+ * break after the last record, a last record without one is also loaded once the file has kept the same size across
+ * two refreshes, and a line break appended right after it later on is skipped.
+ * <p>
+ * The loader does not synchronize with other users of the table; share the table through a {@link ConcurrentTable}
+ * if it is read while the loader writes to it.
+ * @implNote Records are found by scanning raw bytes, so the file must use an ASCII compatible encoding such as UTF-8
+ */
+public class TailLoader<T extends Table.Row> {
+
+    private static final int BLOCK_SIZE = 1 << 16;
+    // Bytes at the start of the file whose checksum is compared to detect the file being rewritten
+    private static final int CHECKSUM_SIZE = 1 << 12;
+
+    private final Table<T> table;
+    private final Path path;
+
+    // End of the last record loaded, and the line the next record starts on
+    private long offset = 0;
+    private int nextLine = 1;
+    private long checksum;
+    private Object fileKey;
+    // Size of the file at the last refresh, to tell whether a last record without a line break is still being written
+    private long lastSize = -1;
+    // Whether the last record loaded had no line break after it
+    private boolean unterminated = false;
+
+    public TailLoader(Table<T> table, String filePath) {
+        this.table = table;
+        this.path = Path.of(filePath);
+    }
+
+    /**
+     * Loads the records appended to the file since the last refresh, or the whole file on the first refresh and
+     * whenever it was truncated or rewritten. A refresh that fails leaves the table and the offset as they were
+     * @return The number of rows added to the table
+     */
+    public int refresh() throws IOException, Exceptions.Parse {
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Object fileKey = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+            if (this.offset > 0 && (size < this.offset || !Objects.equals(fileKey, this.fileKey)
+                    || this.checksum(channel, Math.min(this.offset, CHECKSUM_SIZE)) != this.checksum)) {
+                return this.reload(channel, size, fileKey);
+            }
+
+            long start = this.offset;
+            int firstLine = this.nextLine;
+            if (this.unterminated && size > start) {
+                // A record loaded without a line break must have been followed by one, or it was still being written
+                ByteBuffer next = ByteBuffer.allocate((int) Math.min(2, size - start));
+                channel.read(next, start);
+                if (next.get(0) == '\n' || (next.get(0) == '\r' && (next.limit() < 2 || next.get(1) == '\n'))) {
+                    start += next.limit() == 2 && next.get(0) == '\r' ? 2 : 1;
+                } else {
+                    return this.reload(channel, size, fileKey);
+                }
+            }
+
+            int added = this.load(channel, start, firstLine, size, this.offset == 0, false);
+            this.fileKey = fileKey;
+            return added;
+        }
+    }
+
+    // Loads the whole file again, only replacing the rows of the table once it parsed
+    private int reload(FileChannel channel, long size, Object fileKey) throws IOException, Exceptions.Parse {
+        int added = this.load(channel, 0, 1, size, true, true);
+        this.fileKey = fileKey;
+        return added;
+    }
+
+    /**
+     * Loads the complete records in [start, size), replacing every row of the table if asked to.
+     * The records are all parsed before the table or the position of the loader change, so a record that fails to
+     * parse leaves both as they were
+     */
+    private int load(FileChannel channel, long start, int firstLine, long size, boolean header, boolean replace)
+            throws IOException, Exceptions.Parse {
+        long end = start;
+        int lines = 0;
+        // Scanned the way the tokenizer reads records, so a quote inside an unquoted cell does not open a quoted cell
+        int state = Tokenizer.CELL_START;
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        long position = start;
+        int pendingLines = 0;
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == '\n') {
+                    pendingLines++;
+                    if (state != Tokenizer.QUOTED) {
+                        end = position + i + 1;
+                        lines += pendingLines;
+                        pendingLines = 0;
+                    }
+                }
+                state = Tokenizer.Scan(state, b);
+            }
+            position += read;
+        }
+
+        // A last record without a line break is loaded once the file stopped growing. The size a reload saw before
+        // is not compared, since the file has changed since then
+        boolean unterminated = false;
+        if (end < size && state != Tokenizer.QUOTED && !replace && size == this.lastSize) {
+            end = size;
+            lines += pendingLines;
+            unterminated = true;
+        }
+
+        // Nothing new, which keeps a last record loaded without a line break as it was
+        if (end == start && !replace) {
+            this.lastSize = size;
+            return 0;
+        }
+
+        ArrayList<T> batch = new ArrayList<>();
+        if (end > start) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            try (Tokenizer tokenizer = new Tokenizer(bytes, Charset.defaultCharset(), firstLine)) {
+                batch = this.table.parseRecords(tokenizer, header ? this.path.toString() : null);
+            }
+        }
+
+        long checksum = this.checksum(channel, Math.min(end, CHECKSUM_SIZE));
+
+        if (replace) {
+            this.table.clear();
+        }
+        int added = this.table.addRows(batch);
+        this.offset = end;
+        this.nextLine = firstLine + lines + (unterminated ? 1 : 0);
+        this.unterminated = unterminated;
+        this.lastSize = size;
+        this.checksum = checksum;
+        return added;
+    }
+
+    private long checksum(FileChannel channel, long length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, bytes.position()) <= 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * Refreshes the table every time the file changes, until the calling thread is interrupted.
+     * Errors of a refresh are printed and the loader keeps watching, retrying on the next change
+     */
+    public void watch() throws IOException {
+        Path directory = this.path.toAbsolutePath().getParent();
+        Path name = this.path.getFileName();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            this.tryRefresh();
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    this.tryRefresh();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tryRefresh() {
+        try {
+            this.refresh();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,401 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Single pass CSV tokenizer following RFC 4180.
+ * <p>
+ * Records are read straight out of a growable char buffer. Instead of handing out a String per cell, the tokenizer
+ * exposes the boundaries of every cell of the current record inside {@link #getBuffer()}, so callers only allocate
+ * for the cells they actually need as objects. Unquoted cells are trimmed of leading and trailing whitespace,
+ * quoted cells may contain commas, escaped quotes ({@code ""}) and line breaks and are unescaped in place.
+ * <p>
+ * Boundaries are only valid until the next call to {@link #nextRecord()}.
+ */
+public class Tokenizer implements AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // Byte range of a file that starts on a record boundary
+    public static class Range {
+
+        private final long start;
+        private final long end;
+        private final int firstLine;
+
+        public Range(long start, long end, int firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+
+        public long getStart() {
+            return this.start;
+        }
+
+        public long getLength() {
+            return this.end - this.start;
+        }
+
+        public int getFirstLine() {
+            return this.firstLine;
+        }
+
+    }
+
+    // Scanner states used by Split and TailLoader, mirroring how the tokenizer treats each character
+    static final int CELL_START = 0;
+    static final int UNQUOTED = 1;
+    static final int QUOTED = 2;
+    static final int QUOTE_IN_QUOTED = 3;
+
+    /**
+     * Advances a scan over raw bytes by one byte, starting in CELL_START at the start of a record. A quote only opens
+     * a quoted cell at the start of a cell, and two quotes inside a quoted cell are an escaped quote. A line break
+     * ends the record unless the state before it is QUOTED
+     */
+    static int Scan(int state, byte b) {
+        if (state == QUOTED) {
+            return b == '"' ? QUOTE_IN_QUOTED : QUOTED;
+        }
+        if (b == '\n' || b == '\r' || b == ',') {
+            return CELL_START;
+        }
+        if (state == CELL_START) {
+            return b == '"' ? QUOTED : b > ' ' ? UNQUOTED : CELL_START;
+        }
+        if (state == QUOTE_IN_QUOTED) {
+            // Two quotes in a row are an escaped quote, anything else closes the cell
+            return b == '"' ? QUOTED : UNQUOTED;
+        }
+        return state;
+    }
+
+    /**
+     * Splits a file into ranges of roughly targetSize bytes that each start on a record boundary, by scanning its
+     * bytes once and tracking whether a line break is inside a quoted cell.
+     * The first range always holds exactly the first record, so the header can be read on its own.
+     * @implNote Only valid for ASCII compatible encodings, where the bytes of ',', '"', '\r' and '\n' never occur
+     * inside a multibyte character
+     */
+    public static ArrayList<Range> Split(FileChannel channel, long targetSize) throws IOException {
+        ArrayList<Range> ranges = new ArrayList<>();
+        ByteBuffer bytes = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        long size = channel.size();
+        long offset = 0;
+        long rangeStart = 0;
+        int rangeLine = 1;
+        int line = 1;
+        int state = CELL_START;
+        boolean carriageReturn = false;
+
+        while (offset < size) {
+            bytes.clear();
+            int read = channel.read(bytes, offset);
+            if (read < 0) {
+                break;
+            }
+            byte[] array = bytes.array();
+            for (int i = 0; i < read; i++, offset++) {
+                byte b = array[i];
+                if (carriageReturn) {
+                    // A record ended on '\r', it only continues to the next byte if that completes a "\r\n"
+                    carriageReturn = false;
+                    if (b == '\n') {
+                        if (ranges.isEmpty() || offset + 1 - rangeStart >= targetSize) {
+                            ranges.add(new Range(rangeStart, offset + 1, rangeLine));
+                            rangeStart = offset + 1;
+                            rangeLine = line;
+                        }
+                        continue;
+                    }
+                    if (ranges.isEmpty() || offset - rangeStart >= targetSize) {
+                        ranges.add(new Range(rangeStart, offset, rangeLine));
+                        rangeStart = offset;
+                        rangeLine = line;
+                    }
+                }
+
+                if (state == QUOTED) {
+                    if (b == '\n') {
+                        line++;
+                    }
+                } else if (b == '\n' || b == '\r') {
+                    line++;
+                    if (b == '\r') {
+                        carriageReturn = true;
+                    } else if (ranges.isEmpty() || offset + 1 - rangeStart >= targetSize) {
+                        ranges.add(new Range(rangeStart, offset + 1, rangeLine));
+                        rangeStart = offset + 1;
+                        rangeLine = line;
+                    }
+                }
+                state = Scan(state, b);
+            }
+        }
+
+        if (rangeStart < size) {
+            ranges.add(new Range(rangeStart, size, rangeLine));
+        }
+        return ranges;
+    }
+
+    private final Reader reader;
+
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    // Start of the record currently being tokenized. Everything before it may be discarded on refill
+    private int recordStart = 0;
+    // Bounds of the cell currently being tokenized. For quoted cells cellEnd doubles as the unescape write pointer
+    private int cellStart = 0;
+    private int cellEnd = 0;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+
+    private int lineNumber = 0;
+    private int nextLine;
+
+    // Tokenizes a range of bytes, typically a memory mapped Range of a file
+    public Tokenizer(ByteBuffer bytes, Charset charset, int firstLine) {
+        this(new InputStreamReader(new ByteBufferInputStream(bytes), charset), firstLine);
+    }
+
+    public Tokenizer(Reader reader) {
+        this(reader, 1);
+    }
+
+    // firstLine is the line number reported for the first record read, used when tokenizing part of a file
+    public Tokenizer(Reader reader, int firstLine) {
+        this.reader = reader;
+        this.buffer = new char[DEFAULT_BUFFER_SIZE];
+        this.nextLine = firstLine;
+    }
+
+    /**
+     * Advances to the next record
+     * @return false once the end of the input has been reached
+     */
+    public boolean nextRecord() throws IOException, Exceptions.Parse {
+        this.count = 0;
+        this.lineNumber = this.nextLine;
+        this.recordStart = this.position;
+        if (this.position >= this.limit && !this.fill()) {
+            return false;
+        }
+
+        int delimiter;
+        do {
+            delimiter = this.readCell();
+        } while (delimiter == ',');
+
+        if (delimiter == '\r' && (this.position < this.limit || this.fill()) && this.buffer[this.position] == '\n') {
+            this.position++;
+        }
+        if (delimiter != -1) {
+            this.nextLine++;
+        }
+        return true;
+    }
+
+    public int getCellCount() {
+        return this.count;
+    }
+
+    public char[] getBuffer() {
+        return this.buffer;
+    }
+
+    // Inclusive start of cell i inside getBuffer()
+    public int getStart(int i) {
+        return this.starts[i];
+    }
+
+    // Exclusive end of cell i inside getBuffer()
+    public int getEnd(int i) {
+        return this.ends[i];
+    }
+
+    public String getCell(int i) {
+        return new String(this.buffer, this.starts[i], this.ends[i] - this.starts[i]);
+    }
+
+    public String[] getCells() {
+        String[] cells = new String[this.count];
+        for (int i = 0; i < this.count; i++) {
+            cells[i] = this.getCell(i);
+        }
+        return cells;
+    }
+
+    // Line on which the current record starts. Differs from the record index once quoted cells contain line breaks
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    // Reads one cell and returns the character that terminated it, or -1 at the end of the input
+    private int readCell() throws IOException, Exceptions.Parse {
+        char c;
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                this.addCell(this.position, this.position);
+                return -1;
+            }
+            c = this.buffer[this.position];
+            if (c > ' ' || c == '\n' || c == '\r') {
+                break;
+            }
+            this.position++;
+        }
+
+        if (c == '"') {
+            return this.readQuoted();
+        }
+
+        this.cellStart = this.position;
+        this.cellEnd = this.position;
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                this.addCell(this.cellStart, this.cellEnd);
+                return -1;
+            }
+            c = this.buffer[this.position++];
+            if (c == ',' || c == '\n' || c == '\r') {
+                this.addCell(this.cellStart, this.cellEnd);
+                return c;
+            }
+            if (c > ' ') {
+                this.cellEnd = this.position;
+            }
+        }
+    }
+
+    private int readQuoted() throws IOException, Exceptions.Parse {
+        // Skip the opening quote
+        this.position++;
+        this.cellStart = this.position;
+        this.cellEnd = this.position;
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                throw new Exceptions.Parse(
+                        String.format("Line %d has an unterminated quoted value", this.lineNumber)
+                );
+            }
+            char c = this.buffer[this.position++];
+            if (c == '"') {
+                if (this.position >= this.limit && !this.fill()) {
+                    this.addCell(this.cellStart, this.cellEnd);
+                    return -1;
+                }
+                if (this.buffer[this.position] != '"') {
+                    break;
+                }
+                this.position++;
+            } else if (c == '\n') {
+                this.nextLine++;
+            }
+            this.buffer[this.cellEnd++] = c;
+        }
+
+        // Only whitespace may follow the closing quote
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                this.addCell(this.cellStart, this.cellEnd);
+                return -1;
+            }
+            char c = this.buffer[this.position++];
+            if (c == ',' || c == '\n' || c == '\r') {
+                this.addCell(this.cellStart, this.cellEnd);
+                return c;
+            }
+            if (c > ' ') {
+                throw new Exceptions.Parse(
+                        String.format("Line %d has unexpected character '%c' after a closing quote", this.lineNumber, c)
+                );
+            }
+        }
+    }
+
+    private void addCell(int start, int end) {
+        if (this.count == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.count * 2);
+            this.ends = Arrays.copyOf(this.ends, this.count * 2);
+        }
+        this.starts[this.count] = start;
+        this.ends[this.count] = end;
+        this.count++;
+    }
+
+    // Reads more input, discarding everything before the current record and growing the buffer if the record fills it
+    private boolean fill() throws IOException {
+        if (this.eof) {
+            return false;
+        }
+
+        int shift = this.recordStart;
+        if (shift > 0) {
+            System.arraycopy(this.buffer, shift, this.buffer, 0, this.limit - shift);
+            this.position -= shift;
+            this.limit -= shift;
+            this.recordStart = 0;
+            this.cellStart -= shift;
+            this.cellEnd -= shift;
+            for (int i = 0; i < this.count; i++) {
+                this.starts[i] -= shift;
+                this.ends[i] -= shift;
+            }
+        }
+        if (this.limit > this.buffer.length / 2) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+
+        int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (read < 0) {
+            this.eof = true;
+            return false;
+        }
+        this.limit += read;
+        return true;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer bytes;
+
+        private ByteBufferInputStream(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            return this.bytes.hasRemaining() ? this.bytes.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!this.bytes.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, this.bytes.remaining());
+            this.bytes.get(b, off, len);
+            return len;
+        }
+
+    }
+
+}
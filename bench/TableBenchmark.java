@@ -0,0 +1,373 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import csv.Exceptions;
+import csv.Sort;
+import csv.Table;
+
+/**
+ * Measures the main paths of Table on a generated table: loading, saving, sorting, lookups, adding rows with and
+ * without duplicate detection, and reading columns.
+ * <p>
+ * Every benchmark runs for each number of rows and each mix of columns: {@code numeric} has only number columns,
+ * {@code mixed} a string, number and enum column, and {@code text} mostly string columns, some of which need quoting.
+ * <p>
+ * Usage, with the allocation rate and GC counts per benchmark:
+ * <pre>
+ * mvn -P jmh package
+ * java -jar target/benchmarks.jar -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class TableBenchmark {
+
+    public enum Category { FOOD, TOOLS, TOYS, BOOKS, GAMES }
+
+    public static class Numeric extends Table.Row {
+
+        public Numeric() {}
+
+        public Numeric(int id, long timestamp, float price, double score) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.price = price;
+            this.score = score;
+        }
+
+        @Table.Column
+        public int id;
+
+        @Table.Column
+        public long timestamp;
+
+        @Table.Column
+        public float price;
+
+        @Table.Column
+        public double score;
+
+    }
+
+    public static class Item extends Table.Row {
+
+        public Item() {}
+
+        public Item(String name, int quantity, float price, Category category) {
+            this.name = name;
+            this.quantity = quantity;
+            this.price = price;
+            this.category = category;
+        }
+
+        @Table.Column
+        public String name;
+
+        @Table.Column
+        public int quantity;
+
+        @Table.Column
+        public float price;
+
+        @Table.Column
+        @Table.Enum(enumClass = Category.class)
+        public Category category;
+
+    }
+
+    public static class Text extends Table.Row {
+
+        public Text() {}
+
+        public Text(int id, String name, String city, String note) {
+            this.id = id;
+            this.name = name;
+            this.city = city;
+            this.note = note;
+        }
+
+        @Table.Column
+        public int id;
+
+        @Table.Column
+        public String name;
+
+        @Table.Column
+        public String city;
+
+        @Table.Column
+        public String note;
+
+    }
+
+    private static final String[] CITIES = {"Oslo", "Lima", "Kyoto", "Porto", "Quito", "Perth", "Dakar", "Turin"};
+
+    @Param({"10000", "200000"})
+    public int rows;
+
+    @Param({"numeric", "mixed", "text"})
+    public String columns;
+
+    private Fixture<?> fixture;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        switch (this.columns) {
+            case "numeric":
+                this.fixture = new Fixture<>(
+                        Numeric.class,
+                        (i, random) -> new Numeric(
+                                i,
+                                1_600_000_000_000L + random.nextInt(1_000_000_000),
+                                random.nextInt(100_000) / 100f,
+                                random.nextDouble()
+                        ),
+                        Sort.Ascending("score"),
+                        Sort.<Numeric>By("price").thenDescending("timestamp"),
+                        "id",
+                        row -> row.id == -1,
+                        row -> row.price < 100
+                );
+                break;
+            case "mixed":
+                this.fixture = new Fixture<>(
+                        Item.class,
+                        (i, random) -> new Item(
+                                "item " + i,
+                                random.nextInt(10_000),
+                                random.nextInt(100_000) / 100f,
+                                Category.values()[random.nextInt(Category.values().length)]
+                        ),
+                        Sort.Ascending("price"),
+                        Sort.<Item>By("category").thenDescending("quantity"),
+                        "quantity",
+                        row -> row.quantity == -1,
+                        row -> row.category == Category.TOYS
+                );
+                break;
+            case "text":
+                this.fixture = new Fixture<>(
+                        Text.class,
+                        (i, random) -> new Text(
+                                i,
+                                "user " + Integer.toString(random.nextInt(), 36),
+                                CITIES[random.nextInt(CITIES.length)],
+                                "note " + i + ", \"revision\" " + random.nextInt(100)
+                        ),
+                        Sort.Ascending("name"),
+                        Sort.<Text>By("city").thenDescending("id"),
+                        "id",
+                        row -> row.id == -1,
+                        row -> row.city.equals("Oslo")
+                );
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown column mix '%s'", this.columns));
+        }
+        this.fixture.setup(this.rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.fixture.file.delete();
+    }
+
+    @Benchmark
+    public Object loadCSV() {
+        return this.fixture.load(true);
+    }
+
+    @Benchmark
+    public Object loadCSVDedup() {
+        return this.fixture.load(false);
+    }
+
+    @Benchmark
+    public Object saveCSV() {
+        return this.fixture.save();
+    }
+
+    @Benchmark
+    public Object toText() {
+        return this.fixture.table.toString();
+    }
+
+    @Benchmark
+    public Object sortAscending() {
+        return this.fixture.sortAscending();
+    }
+
+    @Benchmark
+    public Object sortTwoKeys() {
+        return this.fixture.sortTwoKeys();
+    }
+
+    @Benchmark
+    public Object topK() {
+        return this.fixture.topK();
+    }
+
+    @Benchmark
+    public Object find() {
+        return this.fixture.find();
+    }
+
+    @Benchmark
+    public Object findAll() {
+        return this.fixture.findAll();
+    }
+
+    @Benchmark
+    public Object addRow() {
+        return this.fixture.addRows(true);
+    }
+
+    @Benchmark
+    public Object addRowDedup() {
+        return this.fixture.addRows(false);
+    }
+
+    @Benchmark
+    public Object removeDuplicates() {
+        return this.fixture.removeDuplicates();
+    }
+
+    @Benchmark
+    public Object getColumn() {
+        return this.fixture.getColumn();
+    }
+
+    @Benchmark
+    public Object getIntColumn() throws Exceptions.InvalidColumn {
+        return this.fixture.getIntColumn();
+    }
+
+    // The generated rows and table of one column mix, with the sorts, filters and columns the benchmarks use on it
+    private static final class Fixture<T extends Table.Row> {
+
+        private final Class<T> rowclass;
+        private final BiFunction<Integer, Random, T> generator;
+        private final Sort.Sorter<T> ascending;
+        private final Sort.Sorter<T> twoKeys;
+        private final String intColumn;
+        // Matches no row, so find scans the whole table
+        private final Table.RowFilter<T> none;
+        // Matches about a tenth of the rows
+        private final Table.RowFilter<T> some;
+
+        private ArrayList<T> generated;
+        private Table<T> table;
+        private File file;
+
+        Fixture(Class<T> rowclass,
+                BiFunction<Integer, Random, T> generator,
+                Sort.Sorter<T> ascending,
+                Sort.Sorter<T> twoKeys,
+                String intColumn,
+                Table.RowFilter<T> none,
+                Table.RowFilter<T> some) {
+            this.rowclass = rowclass;
+            this.generator = generator;
+            this.ascending = ascending;
+            this.twoKeys = twoKeys;
+            this.intColumn = intColumn;
+            this.none = none;
+            this.some = some;
+        }
+
+        // Every row is distinct, since a duplicate aborts loadCSV when duplicates are not allowed
+        void setup(int rows) throws IOException {
+            Random random = new Random(42);
+            this.generated = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                this.generated.add(this.generator.apply(i, random));
+            }
+            this.table = this.addRows(true);
+            this.file = File.createTempFile("table-benchmark", ".csv");
+            this.table.saveCSV(this.file.getPath());
+        }
+
+        Table<T> load(boolean allowDuplicates) {
+            Table<T> loaded = new Table<>(this.rowclass, null, allowDuplicates);
+            loaded.loadCSV(this.file.getPath());
+            return loaded;
+        }
+
+        File save() {
+            this.table.saveCSV(this.file.getPath());
+            return this.file;
+        }
+
+        Table<T> sortAscending() {
+            Table<T> copy = this.table.copy();
+            copy.sort(this.ascending);
+            return copy;
+        }
+
+        Table<T> sortTwoKeys() {
+            Table<T> copy = this.table.copy();
+            copy.sort(this.twoKeys);
+            return copy;
+        }
+
+        ArrayList<T> topK() {
+            return this.table.topK(this.ascending, 100);
+        }
+
+        T find() {
+            return this.table.find(this.none);
+        }
+
+        ArrayList<T> findAll() {
+            return this.table.findAll(this.some);
+        }
+
+        Table<T> addRows(boolean allowDuplicates) {
+            Table<T> added = new Table<>(this.rowclass, null, allowDuplicates);
+            for (T row : this.generated) {
+                added.addRow(row);
+            }
+            return added;
+        }
+
+        Table<T> removeDuplicates() {
+            Table<T> copy = this.table.copy();
+            copy.removeDuplicates();
+            return copy;
+        }
+
+        ArrayList<?> getColumn() {
+            return this.table.getColumn(this.intColumn);
+        }
+
+        int[] getIntColumn() throws Exceptions.InvalidColumn {
+            return this.table.getIntColumn(this.intColumn);
+        }
+
+    }
+
+}
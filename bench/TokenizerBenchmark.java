@@ -0,0 +1,88 @@
+package bench;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import csv.Tokenizer;
+
+/**
+ * Compares the Tokenizer against the Scanner + String.split path it replaced, each returning the number of cells read.
+ * <p>
+ * Usage: see {@link TableBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.file = File.createTempFile("tokenizer-benchmark", ".csv");
+        Random random = new Random(42);
+        try (PrintWriter writer = new PrintWriter(this.file)) {
+            writer.print("name,height,age");
+            for (int i = 0; i < this.rows; i++) {
+                writer.printf(Locale.ROOT, "%nuser%d, %.2f, %d", random.nextInt(100_000), 1 + random.nextFloat(), random.nextInt(100));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    @Benchmark
+    public long scannerSplit() throws Exception {
+        long cells = 0;
+        try (Scanner scanner = new Scanner(this.file)) {
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().split(",");
+                for (int i = 0; i < parts.length; i++) {
+                    parts[i] = parts[i].trim();
+                }
+                cells += parts.length;
+            }
+        }
+        return cells;
+    }
+
+    @Benchmark
+    public long tokenizer() throws Exception {
+        long cells = 0;
+        try (Tokenizer tokenizer = new Tokenizer(new FileReader(this.file))) {
+            while (tokenizer.nextRecord()) {
+                cells += tokenizer.getCellCount();
+            }
+        }
+        return cells;
+    }
+
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TailLoaderTest {
+
+    public static class Item extends Table.Row {
+
+        public Item() {}
+
+        @Table.Column
+        public String name;
+
+        @Table.Column
+        public float height;
+
+        @Table.Column
+        public int age;
+
+    }
+
+    @TempDir
+    Path directory;
+
+    private static void append(Path path, String text) throws Exception {
+        Files.writeString(path, text, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void quoteInsideUnquotedCellDoesNotOpenQuotedCell() throws Exception {
+        Path path = this.directory.resolve("items.csv");
+        Files.writeString(path, "name,height,age\n12 inch\",1.0,2\nzed,1.0,3\n");
+        Table<Item> table = new Table<>(Item.class);
+        TailLoader<Item> loader = new TailLoader<>(table, path.toString());
+
+        assertEquals(2, loader.refresh());
+        assertEquals("12 inch\"", table.getRows().get(0).name);
+        assertEquals("zed", table.getRows().get(1).name);
+
+        append(path, "six,1.5,4\n");
+        assertEquals(1, loader.refresh());
+        assertEquals(3, table.getNumRows());
+    }
+
+    @Test
+    public void lineBreakInsideQuotedCellWaitsForRecordEnd() throws Exception {
+        Path path = this.directory.resolve("items.csv");
+        Files.writeString(path, "name,height,age\n\"a \"\"b\"\"\nc");
+        Table<Item> table = new Table<>(Item.class);
+        TailLoader<Item> loader = new TailLoader<>(table, path.toString());
+
+        // The quoted cell is still open, so the record is not complete yet
+        assertEquals(0, loader.refresh());
+        assertEquals(0, loader.refresh());
+
+        append(path, "\",1.0,2\n");
+        assertEquals(1, loader.refresh());
+        assertEquals("a \"b\"\nc", table.getRows().get(0).name);
+        assertEquals(2, table.getRows().get(0).age);
+    }
+
+}